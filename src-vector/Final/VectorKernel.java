@@ -0,0 +1,219 @@
+package Final;
+
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Search kernel that evaluates sibling states on the Vector API, one state per long lane.
+ * Each depth keeps its frontier as two parallel long[] arrays (position bit, visited set). Move
+ * generation, the feasibility / Manhattan mask, the dead-cell test and the connectivity flood fill run
+ * as LongVector operations over SPECIES_PREFERRED, 4 lanes with AVX2 and 8 with AVX-512, so a child
+ * is kept exactly when SearchKernel.canReachEnd would enter it. Survivors are compacted into the next
+ * depth's arrays between steps; blocks of BATCH_SIZE states are expanded depth-first so the memory per
+ * depth stays bounded. nodes() counts the same states SearchKernel enters, the root and every child
+ * that survives the pruning, so the node rates of the two kernels compare directly.
+ *
+ * The remaining-cell check of canReachEnd always holds one move after a full visited set, so it is
+ * not evaluated here.
+ *
+ * This class lives apart from src because it needs the incubator module:
+ *   javac -d out $(find src -name '*.java')
+ *   javac --add-modules jdk.incubator.vector -cp out -d out src-vector/Final/VectorKernel.java
+ *   java --add-modules jdk.incubator.vector -cp out Final.VectorKernel [pattern] [rounds]
+ * Final.TotalPath uses it for its leaf subtrees with -Dtotalpath.kernel=vector.
+ */
+public final class VectorKernel implements LaneKernel {
+    private static final int GRID_SIZE = 8;
+    private static final int TOTAL_MOVES = 63;
+    private static final int END_POS = (GRID_SIZE - 1) * GRID_SIZE;
+    private static final long END_BIT = 1L << END_POS;
+
+    private static final VectorSpecies<Long> SPECIES = LongVector.SPECIES_PREFERRED;
+    private static final int LANES = SPECIES.length();
+
+    // States evaluated per block, the arrays are padded so the last vector of a block never needs a mask
+    public static final int BATCH_SIZE = 256;
+
+    // WITHIN_DISTANCE[k] holds the cells at most k moves away from the end
+    private static final long[] WITHIN_DISTANCE = new long[TOTAL_MOVES + 1];
+
+    static {
+        for (int k = 0; k <= TOTAL_MOVES; k++) {
+            long cells = 0;
+            for (int x = 0; x < GRID_SIZE; x++) {
+                for (int y = 0; y < GRID_SIZE; y++) {
+                    if (Math.abs(x - (GRID_SIZE - 1)) + Math.abs(y) <= k) {
+                        cells |= 1L << (x * GRID_SIZE + y);
+                    }
+                }
+            }
+            WITHIN_DISTANCE[k] = cells;
+        }
+    }
+
+    // Frontier of every depth, a block of BATCH_SIZE parents has at most 4 * BATCH_SIZE children
+    private final long[][] positionBits = new long[TOTAL_MOVES + 1][4 * BATCH_SIZE + LANES];
+    private final long[][] visitedSets = new long[TOTAL_MOVES + 1][4 * BATCH_SIZE + LANES];
+    private final long[] next = new long[BATCH_SIZE + LANES];
+
+    private long nodes = 0;
+
+    /**
+     * Counts the paths of the subtree rooted at pos after moveIndex moves.
+     */
+    @Override
+    public long count(CompiledPattern pattern, int pos, int moveIndex, long visited) {
+        if (moveIndex == TOTAL_MOVES) {
+            return pos == END_POS ? 1 : 0;
+        }
+        if (!SearchKernel.canReachEnd(pos, TOTAL_MOVES - moveIndex, visited)) {
+            return 0;
+        }
+        positionBits[moveIndex][0] = 1L << pos;
+        visitedSets[moveIndex][0] = visited;
+        nodes++;
+        return expand(pattern, moveIndex, 1);
+    }
+
+    private long expand(CompiledPattern pattern, int depth, int size) {
+        // The feasibility mask only lets the end cell through on the last move
+        if (depth == TOTAL_MOVES) {
+            return size;
+        }
+
+        long[] positions = positionBits[depth];
+        long[] visited = visitedSets[depth];
+        long[] childPositions = positionBits[depth + 1];
+        long[] childVisited = visitedSets[depth + 1];
+
+        byte move = pattern.moves[depth];
+        long allowed = pattern.feasible[depth + 1] & WITHIN_DISTANCE[TOTAL_MOVES - depth - 1];
+        boolean lastMove = depth + 1 == TOTAL_MOVES;
+
+        long total = 0;
+        for (int from = 0; from < size; from += BATCH_SIZE) {
+            int lanes = Math.min(BATCH_SIZE, size - from);
+            int children = 0;
+
+            for (int dir = 0; dir < 4; dir++) {
+                if (move != CompiledPattern.WILDCARD && move != dir) continue;
+
+                for (int i = 0; i < lanes; i += LANES) {
+                    LongVector position = LongVector.fromArray(SPECIES, positions, from + i);
+                    LongVector seen = LongVector.fromArray(SPECIES, visited, from + i);
+                    LongVector bit = step(position, dir).lanewise(VectorOperators.AND_NOT, seen).and(allowed);
+                    if (!lastMove) {
+                        bit = prune(bit, seen);
+                    }
+                    bit.intoArray(next, i);
+                }
+
+                // Compact the surviving lanes into the next depth
+                for (int i = 0; i < lanes; i++) {
+                    long bit = next[i];
+                    if (bit != 0) {
+                        childPositions[children] = bit;
+                        childVisited[children] = visited[from + i] | bit;
+                        children++;
+                    }
+                }
+            }
+
+            nodes += children;
+            if (children > 0) {
+                total += expand(pattern, depth + 1, children);
+            }
+        }
+        return total;
+    }
+
+    // Every lane one step in direction dir, the column masks stop moves wrapping between rows
+    private static LongVector step(LongVector cells, int dir) {
+        return switch (dir) {
+            case 0 -> cells.lanewise(VectorOperators.LSHL, GRID_SIZE);
+            case 1 -> cells.lanewise(VectorOperators.LSHR, GRID_SIZE);
+            case 2 -> cells.lanewise(VectorOperators.LSHL, 1).and(Bitboard.NOT_COLUMN_0);
+            default -> cells.lanewise(VectorOperators.LSHR, 1).and(Bitboard.NOT_COLUMN_7);
+        };
+    }
+
+    private static LongVector neighbors(LongVector cells) {
+        return step(cells, 0).or(step(cells, 1)).or(step(cells, 2)).or(step(cells, 3));
+    }
+
+    // Lane-parallel Bitboard.canComplete: clears the lanes that leave a dead cell or split the unvisited cells
+    private static LongVector prune(LongVector bit, LongVector seen) {
+        LongVector free = seen.or(bit).not();
+        LongVector open = free.or(bit);
+
+        LongVector d = step(open, 1);
+        LongVector u = step(open, 0);
+        LongVector r = step(open, 3);
+        LongVector l = step(open, 2);
+        LongVector atLeastOne = d.or(u).or(r).or(l);
+        LongVector atLeastTwo = d.and(u).or(d.or(u).and(r.or(l))).or(r.and(l));
+        LongVector dead = free.and(~END_BIT).lanewise(VectorOperators.AND_NOT, atLeastTwo)
+                .or(free.and(END_BIT).lanewise(VectorOperators.AND_NOT, atLeastOne));
+        VectorMask<Long> alive = dead.eq(0L);
+
+        // Flood fill from the new cell in every live lane until no lane grows; dead lanes start empty
+        LongVector filled = bit.blend(0L, alive.not());
+        while (true) {
+            LongVector grown = filled.or(neighbors(filled).and(open));
+            if (grown.eq(filled).allTrue()) {
+                break;
+            }
+            filled = grown;
+        }
+        return bit.blend(0L, filled.eq(open).not());
+    }
+
+    // States entered by this kernel since it was created
+    @Override
+    public long nodes() {
+        return nodes;
+    }
+
+    /**
+     * Compares this kernel with the scalar SearchKernel on one pattern, or on every corpus pattern.
+     */
+    public static void main(String[] args) {
+        String[] paths = args.length > 0 ? new String[]{args[0]} : PatternCorpus.PATTERNS;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        System.out.printf("%s, %d lanes of 64 bits%n", SPECIES, LANES);
+
+        SearchKernel scalar = new SearchKernel();
+        VectorKernel vector = new VectorKernel();
+        for (String path : paths) {
+            CompiledPattern pattern = CompiledPattern.compile(path);
+            if (!pattern.canMatch()) {
+                continue;
+            }
+            System.out.println("Pattern: " + path);
+            for (int round = 0; round < rounds; round++) {
+                long scalarNodes = scalar.nodes();
+                long start = System.nanoTime();
+                long scalarPaths = scalar.count(pattern, null, 0, 0, 1L);
+                long scalarNanos = System.nanoTime() - start;
+                scalarNodes = scalar.nodes() - scalarNodes;
+
+                long vectorNodes = vector.nodes();
+                start = System.nanoTime();
+                long vectorPaths = vector.count(pattern, 0, 0, 1L);
+                long vectorNanos = System.nanoTime() - start;
+                vectorNodes = vector.nodes() - vectorNodes;
+
+                System.out.printf("Round %d: scalar %,d paths, %,d nodes in %,d ms; vector %,d paths, %,d nodes" +
+                                " in %,d ms; speedup %.2fx%n",
+                        round + 1, scalarPaths, scalarNodes, scalarNanos / 1_000_000,
+                        vectorPaths, vectorNodes, vectorNanos / 1_000_000, (double) scalarNanos / vectorNanos);
+                if (scalarPaths != vectorPaths || scalarNodes != vectorNodes) {
+                    System.out.println("Kernels disagree");
+                    System.exit(1);
+                }
+            }
+        }
+    }
+}
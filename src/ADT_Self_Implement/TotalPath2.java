@@ -1,24 +1,34 @@
 package ADT_Self_Implement;
 
+import Final.Bitboard;
+import Final.CompiledPattern;
+import Final.EngineEvents;
+import Final.QueryProgress;
+import Final.SearchKernel;
+import Final.SplitPolicy;
+import Final.StripedCounter;
+
 import java.util.Scanner;
 import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.RecursiveAction;
-import java.util.concurrent.atomic.AtomicLong;
-import java.util.concurrent.atomic.AtomicReference;
 
 public class TotalPath2 {
     // Static constants for grid configuration and movement
     private static final int GRID_SIZE = 8;
     private static final int TOTAL_MOVES = 63;
-    private static final int PARALLEL_THRESHOLD = 10;
+    private static final int END_POS = (GRID_SIZE - 1) * GRID_SIZE;
+    private static final String ENGINE = "ADT_Self_Implement.TotalPath2";
     private static final int[] DX = {1, -1, 0, 0};  // Down, Up, Right, Left
     private static final int[] DY = {0, 0, 1, -1};
-    private static final long UPDATE_INTERVAL = 1000;
+
+    // Leaf subtrees run on the iterative kernel, one per worker thread
+    private static final ThreadLocal<SearchKernel> kernels = ThreadLocal.withInitial(SearchKernel::new);
 
     // Progress tracking variables
-    private static final AtomicLong totalPaths = new AtomicLong(0);
-    private static long lastUpdateTime = 0;
+    // Per-worker striped counter, also gives the paths found by each worker thread
+    private static final StripedCounter totalPaths = new StripedCounter(ForkJoinPool.commonPool());
     private static long startTime = 0;
+    private static QueryProgress progress = null;
 
     /**
      * Inner class that handles path exploration using ForkJoin framework
@@ -26,23 +36,32 @@ public class TotalPath2 {
     public static class PathExplorer extends RecursiveAction {
         private final int x, y, moveIndex;
         private final long visited;
-        private final String path;
-        private final AtomicReference<DynamicArray> pathsPerThread;
-        private final int threadId;
+        private final CompiledPattern path;
+        private double share;  // Part of the root's subtree this task covers, split evenly at every fork
+        private long nodes;  // Nodes searched by this task and its inline moves, without forked children
+        private boolean forked;
 
-        public PathExplorer(int x, int y, int moveIndex, long visited, String path,
-                            AtomicReference<DynamicArray> pathsPerThread, int threadId) {
+        public PathExplorer(int x, int y, int moveIndex, long visited, CompiledPattern path, double share) {
             this.x = x;
             this.y = y;
             this.moveIndex = moveIndex;
             this.visited = visited;
             this.path = path;
-            this.pathsPerThread = pathsPerThread;
-            this.threadId = threadId;
+            this.share = share;
         }
 
         @Override
         protected void compute() {
+            EngineEvents.TaskExecuted event = EngineEvents.taskStarted();
+            explore();
+            EngineEvents.taskFinished(event, ENGINE, moveIndex, nodes);
+            if (!forked && progress != null) {
+                progress.subtreesDone(share);
+            }
+        }
+
+        private void explore() {
+            nodes++;
             if (!canReachEnd(x, y, TOTAL_MOVES - moveIndex, visited)) {
                 return;
             }
@@ -63,25 +82,34 @@ public class TotalPath2 {
         // Handles end-of-path logic, incrementing counters if valid
         private void handleEndOfPath() {
             if (x == GRID_SIZE - 1 && y == 0) {
-                totalPaths.incrementAndGet();
-                DynamicArray currentPaths = pathsPerThread.get();
-                currentPaths.set(threadId, currentPaths.get(threadId) + 1);
+                totalPaths.increment();
             }
         }
 
         // Processes the current move based on whether it's a wildcard or directional
         private void processCurrentMove() {
-            char currentMove = path.charAt(moveIndex);
-            TaskQueue subtasks = new TaskQueue();
+            char currentMove = path.path().charAt(moveIndex);
 
-            if (currentMove == '*') {
+            if (currentMove != '*') {
+                handleDirectionalMove(currentMove);
+            } else if (SplitPolicy.shouldSplit(moveIndex)) {
+                TaskQueue subtasks = new TaskQueue();
                 handleWildcardMove(subtasks);
+                if (!subtasks.isEmpty()) {
+                    PathExplorer[] children = subtasks.getAll();
+                    for (PathExplorer child : children) {
+                        child.share = share / children.length;
+                    }
+                    forked = true;
+                    EngineEvents.taskForked(ENGINE, moveIndex, children.length);
+                    invokeAll(children);
+                }
             } else {
-                handleDirectionalMove(currentMove);
-            }
-
-            if (!subtasks.isEmpty()) {
-                invokeAll(subtasks.getAll());
+                // This worker has enough queued work, so the subtree runs on its kernel
+                SearchKernel kernel = kernels.get();
+                long before = kernel.nodes();
+                totalPaths.add(kernel.count(path, null, x * GRID_SIZE + y, moveIndex, visited));
+                nodes += kernel.nodes() - before;
             }
         }
 
@@ -92,7 +120,7 @@ public class TotalPath2 {
             }
         }
 
-        // Handles specific directional moves
+        // Handles specific directional moves, which are followed inline without a new task
         private void handleDirectionalMove(char move) {
             int dir = getDirectionIndex(move);
             processMove(dir, null);
@@ -107,11 +135,13 @@ public class TotalPath2 {
                 long pos = (long) newX * GRID_SIZE + newY;
                 long newVisited = visited | (1L << pos);
 
-                if (moveIndex < PARALLEL_THRESHOLD && subtasks != null) {
-                    subtasks.add(new PathExplorer(newX, newY, moveIndex + 1,
-                            newVisited, path, pathsPerThread, threadId));
+                PathExplorer next = new PathExplorer(newX, newY, moveIndex + 1, newVisited, path, share);
+                if (subtasks != null) {
+                    subtasks.add(next);
                 } else {
-                    explorePaths(newX, newY, moveIndex + 1, newVisited, path);
+                    next.explore();
+                    nodes += next.nodes;
+                    forked = next.forked;
                 }
             }
         }
@@ -142,7 +172,7 @@ public class TotalPath2 {
             return false;
         }
 
-        return !hasIsolatedUnvisitedCells(x, y, visited);
+        return Bitboard.canComplete(visited, x * GRID_SIZE + y, END_POS);
     }
 
     // Checks if minimum moves required is less than moves available
@@ -157,66 +187,6 @@ public class TotalPath2 {
         return movesLeft > unvisitedCells;
     }
 
-    // Checks for isolated unvisited cells that can't be reached
-    private static boolean hasIsolatedUnvisitedCells(int currentX, int currentY, long visited) {
-        if (Long.bitCount(visited) <= GRID_SIZE * GRID_SIZE - 10) {
-            return false;
-        }
-
-        boolean[][] grid = convertToGrid(visited);
-        return checkForIsolatedCells(grid, currentX, currentY);
-    }
-
-    // Converts visited bitset to 2D grid representation
-    private static boolean[][] convertToGrid(long visited) {
-        boolean[][] grid = new boolean[GRID_SIZE][GRID_SIZE];
-        for (int i = 0; i < GRID_SIZE; i++) {
-            for (int j = 0; j < GRID_SIZE; j++) {
-                grid[i][j] = (visited & (1L << (i * GRID_SIZE + j))) != 0;
-            }
-        }
-        return grid;
-    }
-
-    // Checks entire grid for isolated unvisited cells
-    private static boolean checkForIsolatedCells(boolean[][] grid, int currentX, int currentY) {
-        for (int i = 0; i < GRID_SIZE; i++) {
-            for (int j = 0; j < GRID_SIZE; j++) {
-                if (!grid[i][j] && (i != currentX || j != currentY)) {
-                    if (isIsolatedCell(grid, i, j)) {
-                        return true;
-                    }
-                }
-            }
-        }
-        return false;
-    }
-
-    // Checks if a specific cell is isolated (no unvisited neighbors)
-    private static boolean isIsolatedCell(boolean[][] grid, int x, int y) {
-        int accessibleNeighbors = 0;
-        for (int dir = 0; dir < 4; dir++) {
-            int newX = x + DX[dir];
-            int newY = y + DY[dir];
-            if (isValid(newX, newY) && !grid[newX][newY]) {
-                accessibleNeighbors++;
-            }
-        }
-        return accessibleNeighbors == 0;
-    }
-
-    // Displays progress of path finding
-    private static void showProgress() {
-        long currentTime = System.currentTimeMillis();
-        if (currentTime - lastUpdateTime >= UPDATE_INTERVAL) {
-            long elapsedSeconds = (currentTime - startTime) / 1000;
-            System.out.printf("\rPaths found: %,d, Time elapsed: %ds, Paths/second: %,d",
-                    totalPaths.get(), elapsedSeconds,
-                    elapsedSeconds > 0 ? totalPaths.get() / elapsedSeconds : 0);
-            lastUpdateTime = currentTime;
-        }
-    }
-
     // Validates if coordinates are within grid bounds
     private static boolean isValid(int x, int y) {
         return x >= 0 && x < GRID_SIZE && y >= 0 && y < GRID_SIZE;
@@ -241,55 +211,6 @@ public class TotalPath2 {
         return path.matches("[UDLR*]+");
     }
 
-    // Explores all possible paths from current position
-    private static void explorePaths(int x, int y, int moveIndex, long visited, String path) {
-        if (moveIndex == TOTAL_MOVES) {
-            if (x == GRID_SIZE - 1 && y == 0) {
-                totalPaths.incrementAndGet();
-            }
-            return;
-        }
-
-        char currentMove = path.charAt(moveIndex);
-        if (currentMove == '*') {
-            exploreWildcardMove(x, y, moveIndex, visited, path);
-        } else {
-            exploreDirectionalMove(x, y, moveIndex, visited, path, currentMove);
-        }
-    }
-
-    // Handles wildcard move exploration
-    private static void exploreWildcardMove(int x, int y, int moveIndex, long visited, String path) {
-        for (int dir = 0; dir < 4; dir++) {
-            processSingleMove(x, y, moveIndex, visited, path, dir);
-        }
-    }
-
-    // Handles directional move exploration
-    private static void exploreDirectionalMove(int x, int y, int moveIndex, long visited, String path, char move) {
-        int dir = getDirectionIndex(move);
-        processSingleMove(x, y, moveIndex, visited, path, dir);
-    }
-
-    // Processes a single move in the path
-    private static void processSingleMove(int x, int y, int moveIndex, long visited, String path, int dir) {
-        int newX = x + DX[dir];
-        int newY = y + DY[dir];
-
-        if (!isValid(newX, newY)) return;
-
-        long pos = (long) newX * GRID_SIZE + newY;
-        long bitMask = 1L << pos;
-
-        if ((visited & bitMask) != 0) return;
-
-        if (moveIndex == TOTAL_MOVES - 1 && (newX != GRID_SIZE - 1 || newY != 0)) {
-            return;
-        }
-
-        explorePaths(newX, newY, moveIndex + 1, visited | bitMask, path);
-    }
-
     // Main entry point of the program
     public static void main(String[] args) {
         Scanner scanner = new Scanner(System.in);
@@ -312,43 +233,30 @@ public class TotalPath2 {
         System.out.println("\nUsing " + processors + " processor cores");
 
         ForkJoinPool pool = ForkJoinPool.commonPool();
-        AtomicReference<DynamicArray> pathsPerThread = initializeThreadCounters(processors);
 
         startTiming();
         System.out.println("Starting parallel path exploration...\n");
 
-        PathExplorer rootTask = new PathExplorer(0, 0, 0, 1L, path, pathsPerThread, 0);
-        executeAndMonitor(pool, rootTask);
+        PathExplorer rootTask = new PathExplorer(0, 0, 0, 1L, CompiledPattern.compile(path), 1.0);
+        executeAndMonitor(path, pool, rootTask);
 
         displayResults();
     }
 
-    // Initializes thread-specific counters
-    private static AtomicReference<DynamicArray> initializeThreadCounters(int processors) {
-        DynamicArray initialArray = new DynamicArray(processors);
-        for (int i = 0; i < processors; i++) {
-            initialArray.add(0);
-        }
-        return new AtomicReference<>(initialArray);
-    }
-
     // Initializes timing variables
     private static void startTiming() {
+        totalPaths.reset();  // Repeated runs in one JVM start from zero
         startTime = System.currentTimeMillis();
-        lastUpdateTime = startTime;
     }
 
-    // Executes and monitors the path exploration task
-    private static void executeAndMonitor(ForkJoinPool pool, PathExplorer rootTask) {
+    // Executes the path exploration task, its progress is published by QueryProgress while this thread waits
+    private static void executeAndMonitor(String path, ForkJoinPool pool, PathExplorer rootTask) {
+        progress = QueryProgress.start(ENGINE, path, pool, totalPaths::sum, null);
         pool.execute(rootTask);
-        while (!rootTask.isDone()) {
-            showProgress();
-            try {
-                Thread.sleep(100);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                return;
-            }
+        try {
+            progress.await(rootTask);
+        } finally {
+            progress.close();
         }
     }
 
@@ -358,9 +266,10 @@ public class TotalPath2 {
         long totalTime = endTime - startTime;
 
         System.out.println("\n\nFinal Results:");
-        System.out.println("Total paths: " + totalPaths.get());
+        System.out.println("Total paths: " + totalPaths.sum());
         System.out.println("Time (ms): " + totalTime);
         System.out.printf("Average paths per second: %,.2f%n",
-                (totalPaths.get() * 1000.0) / totalTime);
+                (totalPaths.sum() * 1000.0) / totalTime);
+        System.out.println(totalPaths.breakdown());
     }
 }
\ No newline at end of file
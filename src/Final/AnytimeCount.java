@@ -0,0 +1,243 @@
+package Final;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Scanner;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Deadline-bounded counting that answers "at least N, roughly M" instead of running to completion.
+ * Patterns with a long wildcard tail are counted exactly on the ProfileDP. For the others the first
+ * moves are merged into frontier states as in Final.TotalPath, and every state is a top-level subtree
+ * searched on a SearchKernel under a shared SearchBudget of wall-clock time and/or nodes. The budget
+ * already applies to the expansion, which stops at a shallower frontier when it runs out. When the
+ * budget runs out the kernels give up mid-subtree and the remaining tasks skip their states, so the
+ * tree winds down cooperatively and the result holds:
+ * - the exact count of the finished states, a lower bound of the total
+ * - the unfinished states, each standing for the prefixes merged into it
+ * - an estimate of the total, the finished states' paths per prefix extrapolated to the unfinished
+ *   prefixes, with its standard error; a TreeSizeEstimator probe, without error, when no state finished
+ * The finished states can be written as a Checkpoint, so Final.TotalPath with the same frontier
+ * depth and -Dtotalpath.checkpoint=<file> completes the count without searching them again.
+ *
+ * Usage: java Final.AnytimeCount [--millis 2000] [--nodes 0] [--depth 20] [--checkpoint file]
+ */
+public class AnytimeCount {
+    private static final int GRID_SIZE = 8;
+    private static final int TOTAL_MOVES = 63;
+    private static final int STATES_PER_TASK = 64;
+    private static final int SHOWN_UNFINISHED = 10;
+
+    private static final ThreadLocal<SearchKernel> kernels = ThreadLocal.withInitial(SearchKernel::new);
+
+    /**
+     * A frontier state whose subtree was not finished: the end cell and visited cells of its prefixes.
+     */
+    public record Unfinished(int position, long visited, long prefixes) {
+        @Override
+        public String toString() {
+            return String.format("(%d,%d) visited %016x, %,d prefixes", position / GRID_SIZE, position % GRID_SIZE,
+                    visited, prefixes);
+        }
+    }
+
+    /**
+     * Outcome of a bounded count; complete when no state is left, exactPaths is then the total.
+     */
+    public record Result(long exactPaths, double estimatedPaths, double standardError, int depth,
+                         int finishedStates, List<Unfinished> unfinished, long unfinishedPrefixes,
+                         long nodes, long millis) {
+        public boolean complete() {
+            return unfinished.isEmpty();
+        }
+
+        @Override
+        public String toString() {
+            if (complete()) {
+                return Long.toString(exactPaths);
+            }
+            if (Double.isNaN(standardError)) {
+                return String.format("at least %,d, roughly %,.0f (tree probes only)", exactPaths, estimatedPaths);
+            }
+            return String.format("at least %,d, roughly %,.0f (+/- %,.0f)", exactPaths, estimatedPaths, standardError);
+        }
+    }
+
+    /**
+     * Searches the states of a slot range, marking the ones it could not finish with CANCELLED.
+     */
+    private static final class StateTask extends RecursiveAction {
+        private final StateTable states;
+        private final long[] statePaths;
+        private final int from, to;
+        private final CompiledPattern pattern;
+        private final int moveIndex;
+        private final SearchBudget budget;
+
+        StateTask(StateTable states, long[] statePaths, int from, int to, CompiledPattern pattern,
+                  int moveIndex, SearchBudget budget) {
+            this.states = states;
+            this.statePaths = statePaths;
+            this.from = from;
+            this.to = to;
+            this.pattern = pattern;
+            this.moveIndex = moveIndex;
+            this.budget = budget;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > STATES_PER_TASK) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new StateTask(states, statePaths, from, mid, pattern, moveIndex, budget),
+                        new StateTask(states, statePaths, mid, to, pattern, moveIndex, budget));
+                return;
+            }
+            SearchKernel kernel = kernels.get();
+            kernel.setBudget(budget);
+            try {
+                for (int slot = from; slot < to; slot++) {
+                    if (!states.isOccupied(slot)) continue;
+                    statePaths[slot] = budget.exhausted() ? SearchKernel.CANCELLED
+                            : kernel.count(pattern, null, states.positionAt(slot), moveIndex, states.visitedAt(slot));
+                }
+            } finally {
+                kernel.setBudget(null);
+            }
+        }
+    }
+
+    /**
+     * Counts a validated pattern within the budget, 0 leaving the time or node limit off; the finished
+     * states are also recorded in the checkpoint, if not null, which must be for the same depth.
+     * Patterns the ProfileDP suits are always counted exactly, without budget or checkpoint.
+     */
+    public static Result count(String path, ForkJoinPool pool, long millis, long maxNodes, int depth,
+                               Checkpoint checkpoint) {
+        long start = System.nanoTime();
+        SearchBudget budget = new SearchBudget(millis, maxNodes);
+        CompiledPattern pattern = CompiledPattern.compile(path);
+        if (!pattern.canMatch()) {
+            return new Result(0, 0, 0, 0, 0, List.of(), 0, 0, 0);
+        }
+        if (ProfileDP.isSuitable(path)) {
+            long paths = ProfileDP.countPaths(path, pool);
+            return new Result(paths, paths, 0, 0, 0, List.of(), 0, 0, (System.nanoTime() - start) / 1_000_000);
+        }
+
+        FrontierExpansion frontier = FrontierExpansion.expand(pattern, depth, budget);
+        StateTable states = frontier.states();
+        long[] statePaths = new long[states.capacity()];
+        pool.invoke(new StateTask(states, statePaths, 0, states.capacity(), pattern, frontier.depth(), budget));
+
+        // Ratio estimate over the finished states: y = paths, x = merged prefixes
+        long exact = 0;
+        long finishedPrefixes = 0;
+        int finished = 0;
+        List<Unfinished> unfinished = new ArrayList<>();
+        long unfinishedPrefixes = 0;
+        for (int slot = 0; slot < states.capacity(); slot++) {
+            if (!states.isOccupied(slot)) continue;
+            long prefixes = states.countAt(slot);
+            if (statePaths[slot] == SearchKernel.CANCELLED) {
+                unfinished.add(new Unfinished(states.positionAt(slot), states.visitedAt(slot), prefixes));
+                unfinishedPrefixes += prefixes;
+            } else {
+                statePaths[slot] *= prefixes;
+                exact += statePaths[slot];
+                if (checkpoint != null) {
+                    checkpoint.record(states.positionAt(slot), states.visitedAt(slot), statePaths[slot]);
+                }
+                finishedPrefixes += prefixes;
+                finished++;
+            }
+        }
+
+        double estimate = exact;
+        double error = 0;
+        if (unfinishedPrefixes > 0 && finished > 1) {
+            double ratio = (double) exact / finishedPrefixes;
+            double squares = 0;
+            for (int slot = 0; slot < states.capacity(); slot++) {
+                if (states.isOccupied(slot) && statePaths[slot] != SearchKernel.CANCELLED) {
+                    double residual = statePaths[slot] - ratio * states.countAt(slot);
+                    squares += residual * residual;
+                }
+            }
+            double meanPrefixes = (double) finishedPrefixes / finished;
+            estimate += ratio * unfinishedPrefixes;
+            error = unfinishedPrefixes / meanPrefixes * Math.sqrt(squares / (finished - 1) / finished);
+        } else if (unfinishedPrefixes > 0) {
+            TreeSizeEstimator.Estimate probe = TreeSizeEstimator.estimate(path, TreeSizeEstimator.Engine.SEARCH_KERNEL);
+            estimate = Math.max(exact, probe.paths());
+            error = Double.NaN;
+        }
+
+        return new Result(exact, estimate, error, frontier.depth(), finished, unfinished, unfinishedPrefixes,
+                budget.nodes(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private static boolean isValidInput(String path) {
+        if (path.length() != TOTAL_MOVES) {
+            return false;
+        }
+        return path.matches("[UDLR*]+");
+    }
+
+    public static void main(String[] args) {
+        long millis = 2000;
+        long maxNodes = 0;
+        int depth = Integer.getInteger("totalpath.frontier.depth", 20);
+        String checkpointFile = null;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--millis" -> millis = Long.parseLong(args[++i]);
+                case "--nodes" -> maxNodes = Long.parseLong(args[++i]);
+                case "--depth" -> depth = Integer.parseInt(args[++i]);
+                case "--checkpoint" -> checkpointFile = args[++i];
+                default -> throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+
+        Scanner scanner = new Scanner(System.in);
+        System.out.print("Input:\n");
+        String path = scanner.nextLine();
+
+        if (!isValidInput(path)) {
+            System.out.println("Invalid input. Path must be " + TOTAL_MOVES +
+                    " characters long and contain only U, D, L, R, or *");
+            return;
+        }
+
+        Checkpoint checkpoint = checkpointFile != null ? new Checkpoint(Path.of(checkpointFile), path, depth, 0) : null;
+        long startTime = System.currentTimeMillis();
+        Result result = count(path, ForkJoinPool.commonPool(), millis, maxNodes, depth, checkpoint);
+        long totalTime = System.currentTimeMillis() - startTime;
+
+        System.out.println("\nFinal Results:");
+        System.out.println("Total paths: " + result);
+        System.out.println("Time (ms): " + totalTime);
+        System.out.printf("Frontier at move %d: %,d states finished, %,d unfinished (%,d prefixes), %,d nodes%n",
+                result.depth(), result.finishedStates(), result.unfinished().size(), result.unfinishedPrefixes(),
+                result.nodes());
+        for (int i = 0; i < Math.min(SHOWN_UNFINISHED, result.unfinished().size()); i++) {
+            System.out.println("  unfinished " + result.unfinished().get(i));
+        }
+        if (result.unfinished().size() > SHOWN_UNFINISHED) {
+            System.out.println("  ...");
+        }
+        if (checkpoint != null && !result.complete()) {
+            try {
+                checkpoint.flush();
+                System.out.println("Finished states saved to " + checkpointFile
+                        + ", Final.TotalPath resumes from it with -Dtotalpath.checkpoint=" + checkpointFile);
+            } catch (IOException e) {
+                System.out.println("Checkpoint write to " + checkpointFile + " failed: " + e.getMessage());
+            }
+        }
+        scanner.close();
+    }
+}
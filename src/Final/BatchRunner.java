@@ -0,0 +1,288 @@
+package Final;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Counts every pattern of a file in one JVM and one shared pool.
+ * The input, one 63-character pattern per line, is memory-mapped in windows and validated byte by
+ * byte without regex. Patterns are scheduled as pool tasks with at most maxInFlight running at once:
+ * the submitted jobs form a ring, and when it is full the oldest one is joined and its result written
+ * before its slot is reused, so results come out in input order from a single writer thread.
+ * Malformed lines take a ring slot too, as already completed entries, so they keep their place.
+ *
+ * Each output line is "pattern count nanos", with count "invalid" for a malformed line. The lines are
+ * encoded straight into a direct buffer that is drained through a FileChannel.
+ *
+ * With -Dtotalpath.store=<file> every pattern is first looked up in the shared ResultStore and
+ * newly counted patterns are appended to it, so patterns repeated from earlier batches cost a lookup.
+ *
+ * Usage: java Final.BatchRunner <input file> <output file> [max in flight]
+ */
+public final class BatchRunner {
+    private static final int TOTAL_MOVES = 63;
+
+    // Largest part of the input mapped at once, lines are never split across windows
+    private static final long WINDOW_BYTES = 1L << 28;
+    private static final int OUTPUT_BUFFER_BYTES = 1 << 20;
+    private static final byte[] INVALID = "invalid".getBytes(StandardCharsets.US_ASCII);
+
+    private final ForkJoinPool pool;
+    private final ResultStore store;
+    private final PatternJob[] ring;
+    private final FileChannel output;
+    private final ByteBuffer outputBuffer = ByteBuffer.allocateDirect(OUTPUT_BUFFER_BYTES);
+    private final byte[] line = new byte[TOTAL_MOVES];
+
+    private int head = 0;      // Oldest job still in the ring
+    private int inFlight = 0;
+    private long patterns = 0;
+    private long invalid = 0;
+    private long stored = 0;
+
+    private BatchRunner(ForkJoinPool pool, ResultStore store, int maxInFlight, FileChannel output) {
+        this.pool = pool;
+        this.store = store;
+        this.ring = new PatternJob[maxInFlight];
+        this.output = output;
+    }
+
+    /**
+     * Counts the paths of one pattern: infeasible patterns are answered by their masks, long wildcard
+     * tails by the profile DP and everything else by the search.
+     */
+    private static class PatternJob extends RecursiveTask<Long> {
+        private final String path;
+        private final ForkJoinPool pool;  // getPool() is null when the joining thread runs the job itself
+        private final ResultStore store;
+        private final byte[] invalidLine;  // The malformed line for an already completed invalid entry
+        private long nanos;
+        private boolean fromStore;
+
+        PatternJob(String path, ForkJoinPool pool, ResultStore store) {
+            this.path = path;
+            this.pool = pool;
+            this.store = store;
+            this.invalidLine = null;
+        }
+
+        // A malformed line keeps its place in the ring so its output line stays in input order
+        PatternJob(byte[] invalidLine) {
+            this.path = null;
+            this.pool = null;
+            this.store = null;
+            this.invalidLine = invalidLine;
+            complete(0L);
+        }
+
+        @Override
+        protected Long compute() {
+            long start = System.nanoTime();
+            long count = store != null ? lookup() : -1;
+            fromStore = count >= 0;
+            if (!fromStore) {
+                count = search();
+                if (store != null) {
+                    try {
+                        store.put(path, count);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+            }
+            nanos = System.nanoTime() - start;
+            return count;
+        }
+
+        private long lookup() {
+            try {
+                return store.get(path);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private long search() {
+            long count;
+            CompiledPattern pattern = CompiledPattern.compile(path);
+            if (!pattern.canMatch()) {
+                count = 0;
+            } else if (ProfileDP.isSuitable(path)) {
+                count = ProfileDP.countPaths(path, pool);
+            } else {
+                // The search main runs, counting into this job's own counter
+                TotalPath.Search search = new TotalPath.Search(pool, null);
+                new TotalPath.PathExplorer(0, 0, 0, 1L, pattern, search).invoke();
+                count = search.paths();
+            }
+            return count;
+        }
+    }
+
+    /**
+     * Reads every line of the input, schedules the valid patterns and writes all results.
+     */
+    private void run(FileChannel input) throws IOException {
+        long size = input.size();
+        long offset = 0;
+        while (offset < size) {
+            long length = Math.min(WINDOW_BYTES, size - offset);
+            MappedByteBuffer window = input.map(FileChannel.MapMode.READ_ONLY, offset, length);
+            boolean lastWindow = offset + length == size;
+
+            int lineStart = 0;
+            int limit = window.limit();
+            for (int i = 0; i < limit; i++) {
+                if (window.get(i) == '\n') {
+                    processLine(window, lineStart, i);
+                    lineStart = i + 1;
+                }
+            }
+            if (lastWindow || lineStart == 0) {
+                // The final line may lack a newline; a window without any newline is one oversized line
+                if (lineStart < limit) {
+                    processLine(window, lineStart, limit);
+                }
+                offset += length;
+            } else {
+                offset += lineStart;
+            }
+        }
+        while (inFlight > 0) {
+            completeOldest();
+        }
+        drain();
+    }
+
+    private void processLine(ByteBuffer window, int from, int to) throws IOException {
+        if (to > from && window.get(to - 1) == '\r') {
+            to--;
+        }
+        if (to == from) {
+            return;  // Blank lines are skipped
+        }
+        patterns++;
+
+        if (inFlight == ring.length) {
+            completeOldest();
+        }
+        PatternJob job;
+        if (isValidPattern(window, from, to)) {
+            job = new PatternJob(new String(line, StandardCharsets.US_ASCII), pool, store);
+            pool.execute(job);
+        } else {
+            invalid++;
+            byte[] text = new byte[Math.min(to - from, 256)];
+            window.get(from, text);
+            job = new PatternJob(text);
+        }
+        ring[(head + inFlight) % ring.length] = job;
+        inFlight++;
+    }
+
+    // Checks the line and copies it into line, no regex and no allocation
+    private boolean isValidPattern(ByteBuffer window, int from, int to) {
+        if (to - from != TOTAL_MOVES) {
+            return false;
+        }
+        for (int i = 0; i < TOTAL_MOVES; i++) {
+            byte move = window.get(from + i);
+            if (CompiledPattern.encode((char) move) < 0) {
+                return false;
+            }
+            line[i] = move;
+        }
+        return true;
+    }
+
+    private void completeOldest() throws IOException {
+        PatternJob job = ring[head];
+        ring[head] = null;
+        head = (head + 1) % ring.length;
+        inFlight--;
+
+        if (job.invalidLine != null) {
+            writeResult(job.invalidLine, INVALID, 0);
+            return;
+        }
+        long count = job.join();
+        if (job.fromStore) {
+            stored++;
+        }
+        writeResult(job.path.getBytes(StandardCharsets.US_ASCII),
+                Long.toString(count).getBytes(StandardCharsets.US_ASCII), job.nanos);
+    }
+
+    private void writeResult(byte[] pattern, byte[] count, long nanos) throws IOException {
+        if (outputBuffer.remaining() < pattern.length + count.length + 24) {
+            drain();
+        }
+        outputBuffer.put(pattern).put((byte) ' ').put(count).put((byte) ' ');
+        putLong(nanos);
+        outputBuffer.put((byte) '\n');
+    }
+
+    // Decimal digits of a non-negative value, written without creating a String
+    private void putLong(long value) {
+        int start = outputBuffer.position();
+        do {
+            outputBuffer.put((byte) ('0' + value % 10));
+            value /= 10;
+        } while (value != 0);
+        for (int i = start, j = outputBuffer.position() - 1; i < j; i++, j--) {
+            byte digit = outputBuffer.get(i);
+            outputBuffer.put(i, outputBuffer.get(j));
+            outputBuffer.put(j, digit);
+        }
+    }
+
+    private void drain() throws IOException {
+        outputBuffer.flip();
+        while (outputBuffer.hasRemaining()) {
+            output.write(outputBuffer);
+        }
+        outputBuffer.clear();
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.out.println("Usage: java Final.BatchRunner <input file> <output file> [max in flight]");
+            return;
+        }
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        int maxInFlight = args.length > 2 ? Integer.parseInt(args[2]) : 4 * pool.getParallelism();
+        System.out.println("\nUsing " + pool.getParallelism() + " processor threads, "
+                + maxInFlight + " patterns in flight");
+
+        String storeFile = System.getProperty("totalpath.store");
+        ResultStore store = storeFile != null ? ResultStore.open(Path.of(storeFile)) : null;
+
+        long startTime = System.currentTimeMillis();
+        BatchRunner runner;
+        try (FileChannel input = FileChannel.open(Path.of(args[0]), StandardOpenOption.READ);
+             FileChannel output = FileChannel.open(Path.of(args[1]), StandardOpenOption.CREATE,
+                     StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            runner = new BatchRunner(pool, store, maxInFlight, output);
+            runner.run(input);
+        } finally {
+            if (store != null) {
+                store.close();
+            }
+        }
+        long totalTime = System.currentTimeMillis() - startTime;
+
+        System.out.println("\nFinal Results:");
+        System.out.printf("Patterns: %,d (%,d invalid, %,d from the result store)%n",
+                runner.patterns, runner.invalid, runner.stored);
+        System.out.println("Time (ms): " + totalTime);
+        System.out.printf("Patterns per second: %,.2f%n", runner.patterns * 1000.0 / Math.max(1, totalTime));
+    }
+}
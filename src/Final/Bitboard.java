@@ -0,0 +1,111 @@
+package Final;
+
+/**
+ * Pruning kernel working directly on the visited bitmask (bit x * 8 + y is cell (x, y)).
+ * Neighbour spreading is four shifts with the first and last column masked off to stop wrap
+ * around between rows, so every check is a handful of long operations and allocates nothing.
+ */
+public final class Bitboard {
+    private static final int GRID_SIZE = 8;
+
+    public static final long FULL = -1L;
+    public static final long COLUMN_0 = 0x0101010101010101L;
+    public static final long COLUMN_7 = 0x8080808080808080L;
+    public static final long NOT_COLUMN_0 = ~COLUMN_0;
+    public static final long NOT_COLUMN_7 = ~COLUMN_7;
+
+    private Bitboard() {
+    }
+
+    // Cells one step down, up, right and left of any cell in the set
+    public static long down(long cells) {
+        return cells << GRID_SIZE;
+    }
+
+    public static long up(long cells) {
+        return cells >>> GRID_SIZE;
+    }
+
+    public static long right(long cells) {
+        return (cells << 1) & NOT_COLUMN_0;
+    }
+
+    public static long left(long cells) {
+        return (cells >>> 1) & NOT_COLUMN_7;
+    }
+
+    /**
+     * All cells adjacent to at least one cell of the set.
+     */
+    public static long neighbors(long cells) {
+        return down(cells) | up(cells) | right(cells) | left(cells);
+    }
+
+    /**
+     * Cells of allowed connected to seed through allowed cells, seed included.
+     */
+    public static long floodFill(long seed, long allowed) {
+        long filled = seed;
+        while (true) {
+            long next = filled | (neighbors(filled) & allowed);
+            if (next == filled) {
+                return filled;
+            }
+            filled = next;
+        }
+    }
+
+    /**
+     * Whether the cells of the region form a single 4-connected component.
+     */
+    public static boolean isConnected(long region) {
+        if (region == 0) {
+            return true;
+        }
+        return floodFill(Long.lowestOneBit(region), region) == region;
+    }
+
+    /**
+     * Whether some unvisited cell can no longer be part of a path from pos to end.
+     * Every unvisited cell other than end is entered and left again, so it needs two neighbours that
+     * are unvisited or the current cell; end only needs one.
+     */
+    public static boolean hasDeadCell(long visited, int pos, int end) {
+        long free = ~visited;
+        long open = free | (1L << pos);
+
+        long d = up(open);      // Cells whose lower neighbour is open
+        long u = down(open);    // Cells whose upper neighbour is open
+        long r = left(open);    // Cells whose right neighbour is open
+        long l = right(open);   // Cells whose left neighbour is open
+
+        long atLeastOne = d | u | r | l;
+        long atLeastTwo = (d & u) | ((d | u) & (r | l)) | (r & l);
+
+        long endBit = 1L << end;
+        long dead = (free & ~endBit & ~atLeastTwo) | (free & endBit & ~atLeastOne);
+        return dead != 0;
+    }
+
+    /**
+     * Whether the end cell can still be reached from pos through unvisited cells.
+     */
+    public static boolean isEndReachable(long visited, int pos, int end) {
+        return (floodFill(1L << pos, ~visited) & (1L << end)) != 0;
+    }
+
+    /**
+     * Whether every unvisited cell is still reachable from pos, which also covers the end cell.
+     */
+    public static boolean isUnvisitedConnected(long visited, int pos) {
+        long open = ~visited | (1L << pos);
+        return floodFill(1L << pos, open) == open;
+    }
+
+    /**
+     * Combined check used by the engines: no dead cell and a single unvisited region around pos.
+     */
+    public static boolean canComplete(long visited, int pos, int end) {
+        return !hasDeadCell(visited, pos, end) && isUnvisitedConnected(visited, pos);
+    }
+}
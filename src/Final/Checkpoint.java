@@ -0,0 +1,163 @@
+package Final;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Progress file of a long search, keyed on the frontier states of FrontierExpansion.
+ * Each merged frontier state is a top-level subtask; once its subtree is finished its path count is
+ * recorded, and the file lists every finished state with its count. A resumed run expands the same
+ * frontier, adds the recorded counts and only searches the states that are missing.
+ *
+ * Workers only append to a lock-free queue; the file is rewritten by the progress thread at most
+ * once per interval, into a temporary file that is then renamed over the old one, so a crash during
+ * a write leaves the previous checkpoint intact.
+ *
+ * File format, one record per line:
+ *   pattern <63-character pattern>
+ *   depth <frontier depth>
+ *   <position> <visited bitmask> <path count>
+ */
+public final class Checkpoint {
+    private record State(int pos, long visited) {
+    }
+
+    private final Path file;
+    private final String pattern;
+    private final int depth;
+    private final long intervalMillis;
+
+    // Every finished state, with its count; only the writing thread touches this map
+    private final Map<State, Long> finished = new HashMap<>();
+    private final ConcurrentLinkedQueue<long[]> pending = new ConcurrentLinkedQueue<>();
+    private long lastWriteTime;
+    private long writeNanos = 0;
+    private int writes = 0;
+
+    public Checkpoint(Path file, String pattern, int depth, long intervalMillis) {
+        this.file = file;
+        this.pattern = pattern;
+        this.depth = depth;
+        this.intervalMillis = intervalMillis;
+        this.lastWriteTime = System.currentTimeMillis();
+    }
+
+    /**
+     * Loads the finished states of an earlier run of the same pattern and depth.
+     * Returns false, leaving this checkpoint empty, when the file does not exist.
+     *
+     * @throws IOException if the file cannot be read, is malformed or belongs to another pattern or depth
+     */
+    public boolean load() throws IOException {
+        if (!Files.exists(file)) {
+            return false;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.US_ASCII)) {
+            String patternLine = reader.readLine();
+            String depthLine = reader.readLine();
+            if (!("pattern " + pattern).equals(patternLine) || !("depth " + depth).equals(depthLine)) {
+                throw new IOException("Checkpoint " + file + " was written for a different pattern or depth");
+            }
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty()) continue;
+                String[] fields = line.split(" ");
+                if (fields.length != 3) {
+                    throw new IOException("Malformed checkpoint line: " + line);
+                }
+                try {
+                    finished.put(new State(Integer.parseInt(fields[0]), Long.parseLong(fields[1])),
+                            Long.parseLong(fields[2]));
+                } catch (NumberFormatException e) {
+                    throw new IOException("Malformed checkpoint line: " + line, e);
+                }
+            }
+        }
+        return true;
+    }
+
+    // Whether the subtree of a frontier state was finished by an earlier run
+    public boolean isFinished(int pos, long visited) {
+        return finished.containsKey(new State(pos, visited));
+    }
+
+    // Number of states finished so far, including the ones loaded from the file
+    public int finishedStates() {
+        return finished.size();
+    }
+
+    // Sum of the path counts that were loaded or flushed so far
+    public long finishedPaths() {
+        long total = 0;
+        for (long count : finished.values()) {
+            total += count;
+        }
+        return total;
+    }
+
+    /**
+     * Records a finished frontier state; safe to call from any worker.
+     */
+    public void record(int pos, long visited, long count) {
+        pending.add(new long[]{pos, visited, count});
+    }
+
+    /**
+     * Writes the checkpoint if the interval has passed since the last write.
+     */
+    public void flushIfDue() throws IOException {
+        if (System.currentTimeMillis() - lastWriteTime >= intervalMillis) {
+            flush();
+        }
+    }
+
+    /**
+     * Writes every finished state to a temporary file and renames it over the checkpoint.
+     */
+    public void flush() throws IOException {
+        long start = System.nanoTime();
+        long[] entry;
+        while ((entry = pending.poll()) != null) {
+            finished.put(new State((int) entry[0], entry[1]), entry[2]);
+        }
+
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(temporary, StandardCharsets.US_ASCII)) {
+            writer.write("pattern " + pattern);
+            writer.newLine();
+            writer.write("depth " + depth);
+            writer.newLine();
+            for (Map.Entry<State, Long> state : finished.entrySet()) {
+                writer.write(state.getKey().pos() + " " + state.getKey().visited() + " " + state.getValue());
+                writer.newLine();
+            }
+        }
+        try {
+            Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+
+        lastWriteTime = System.currentTimeMillis();
+        writeNanos += System.nanoTime() - start;
+        writes++;
+    }
+
+    public Path file() {
+        return file;
+    }
+
+    public String stats() {
+        return String.format("Checkpoint: %,d states finished, %d writes, %,d ms spent writing",
+                finishedStates(), writes, writeNanos / 1_000_000);
+    }
+}
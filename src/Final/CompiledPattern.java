@@ -0,0 +1,80 @@
+package Final;
+
+/**
+ * A validated pattern compiled for the search kernels: one byte per move instead of String.charAt,
+ * plus the per-step feasibility masks.
+ */
+public final class CompiledPattern {
+    private static final int TOTAL_MOVES = 63;
+
+    // Move codes share the direction indices used by DX / DY, the wildcard comes last
+    public static final byte DOWN = 0;
+    public static final byte UP = 1;
+    public static final byte RIGHT = 2;
+    public static final byte LEFT = 3;
+    public static final byte WILDCARD = 4;
+
+    private final String path;
+    final byte[] moves;
+    final long[] feasible;
+
+    private CompiledPattern(String path, byte[] moves, long[] feasible) {
+        this.path = path;
+        this.moves = moves;
+        this.feasible = feasible;
+    }
+
+    /**
+     * Compiles a 63-character pattern of U, D, L, R and *.
+     */
+    public static CompiledPattern compile(String path) {
+        if (path == null || path.length() != TOTAL_MOVES) {
+            throw new IllegalArgumentException("Pattern must be " + TOTAL_MOVES + " characters long");
+        }
+        byte[] moves = new byte[TOTAL_MOVES];
+        for (int i = 0; i < TOTAL_MOVES; i++) {
+            moves[i] = encode(path.charAt(i));
+            if (moves[i] < 0) {
+                throw new IllegalArgumentException("Invalid move '" + path.charAt(i) + "' at index " + i);
+            }
+        }
+        return new CompiledPattern(path, moves, FeasibilityMasks.compile(path));
+    }
+
+    // Move code of a pattern character, -1 if it is not a move
+    public static byte encode(char move) {
+        return switch (move) {
+            case 'D' -> DOWN;
+            case 'U' -> UP;
+            case 'R' -> RIGHT;
+            case 'L' -> LEFT;
+            case '*' -> WILDCARD;
+            default -> -1;
+        };
+    }
+
+    public String path() {
+        return path;
+    }
+
+    public byte moveAt(int moveIndex) {
+        return moves[moveIndex];
+    }
+
+    // Cells the walker may occupy after moveIndex moves
+    public long feasibleAt(int moveIndex) {
+        return feasible[moveIndex];
+    }
+
+    public boolean canMatch() {
+        return FeasibilityMasks.isFeasible(feasible);
+    }
+
+    public int wildcardCount() {
+        int count = 0;
+        for (byte move : moves) {
+            if (move == WILDCARD) count++;
+        }
+        return count;
+    }
+}
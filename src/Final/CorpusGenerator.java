@@ -0,0 +1,281 @@
+package Final;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Seeded generator of benchmark patterns with known difficulty.
+ * Each pattern starts from a random Hamiltonian path from (0,0) to (7,0), found by a randomized
+ * depth-first search with the SearchKernel pruning, so it always has at least one solution. A chosen
+ * number of its moves is then masked to '*':
+ * - random: uniformly spread
+ * - prefix: weighted towards the first moves
+ * - suffix: weighted towards the last moves
+ * - clustered: a few runs of consecutive moves
+ * Infeasible mutations change fixed moves of generated patterns until none of their paths is left.
+ *
+ * Every line is "pattern kind wildcards count nodes", count and nodes measured with SearchKernel;
+ * --patterns-only prints bare patterns that BatchRunner reads directly.
+ *
+ * Usage: java Final.CorpusGenerator [--seed 42] [--count 20] [--wildcards 20 | --wildcards 10-30]
+ *                                   [--mask random|prefix|suffix|clustered|all] [--infeasible 5]
+ *                                   [--patterns-only] [--no-measure]
+ */
+public class CorpusGenerator {
+    private static final int GRID_SIZE = 8;
+    private static final int TOTAL_MOVES = 63;
+    private static final int START_POS = 0;
+    private static final int END_POS = (GRID_SIZE - 1) * GRID_SIZE;
+
+    private static final String[] MASKS = {"random", "prefix", "suffix", "clustered"};
+
+    // Search nodes a randomized walk may spend before it restarts with a new move order
+    private static final int WALK_BUDGET = 200_000;
+    private static final int LONGEST_CLUSTER = 12;
+    private static final int MUTATION_ATTEMPTS = 1_000;
+
+    private final Random random;
+    private final SearchKernel kernel = new SearchKernel();
+    private final char[] moves = new char[TOTAL_MOVES];
+    private int budget;
+
+    public CorpusGenerator(long seed) {
+        this.random = new Random(seed);
+    }
+
+    /**
+     * A generated pattern with its tags, count and nodes are -1 when not measured.
+     */
+    public record Entry(String pattern, String kind, int wildcards, long count, long nodes) {
+        @Override
+        public String toString() {
+            return pattern + " " + kind + " " + wildcards + " "
+                    + (count < 0 ? "-" : Long.toString(count)) + " " + (nodes < 0 ? "-" : Long.toString(nodes));
+        }
+    }
+
+    /**
+     * A random Hamiltonian path from the start to the end cell as a 63-character move string.
+     */
+    public String randomPath() {
+        while (true) {
+            budget = WALK_BUDGET;
+            if (walk(START_POS, 0, 1L << START_POS)) {
+                return new String(moves);
+            }
+        }
+    }
+
+    private boolean walk(int pos, int moveIndex, long visited) {
+        if (moveIndex == TOTAL_MOVES) {
+            return pos == END_POS;
+        }
+        if (--budget < 0) {
+            return false;
+        }
+
+        // The end cell is only entered by the last move
+        long candidates = MoveGenerator.NEIGHBORS[pos] & ~visited;
+        candidates &= moveIndex + 1 == TOTAL_MOVES ? 1L << END_POS : ~(1L << END_POS);
+
+        int[] order = new int[4];
+        int size = 0;
+        while (candidates != 0) {
+            order[size++] = Long.numberOfTrailingZeros(candidates);
+            candidates &= candidates - 1;
+        }
+        for (int i = size - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = order[i];
+            order[i] = order[j];
+            order[j] = swap;
+        }
+
+        for (int i = 0; i < size; i++) {
+            int next = order[i];
+            long nextVisited = visited | 1L << next;
+            if (moveIndex + 1 < TOTAL_MOVES && !SearchKernel.lookAhead(next, TOTAL_MOVES - moveIndex - 1, nextVisited)) {
+                continue;
+            }
+            moves[moveIndex] = direction(pos, next);
+            if (walk(next, moveIndex + 1, nextVisited)) {
+                return true;
+            }
+            if (budget < 0) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    private static char direction(int from, int to) {
+        return switch (to - from) {
+            case GRID_SIZE -> 'D';
+            case -GRID_SIZE -> 'U';
+            case 1 -> 'R';
+            default -> 'L';
+        };
+    }
+
+    /**
+     * Masks the given number of moves of the path to '*', placed according to mask.
+     */
+    public String mask(String path, int wildcards, String mask) {
+        char[] pattern = path.toCharArray();
+        switch (mask) {
+            case "random" -> {
+                int[] positions = new int[TOTAL_MOVES];
+                for (int i = 0; i < TOTAL_MOVES; i++) positions[i] = i;
+                for (int i = 0; i < wildcards; i++) {
+                    int j = i + random.nextInt(TOTAL_MOVES - i);
+                    int swap = positions[i];
+                    positions[i] = positions[j];
+                    positions[j] = swap;
+                    pattern[positions[i]] = '*';
+                }
+            }
+            case "prefix", "suffix" -> {
+                // Weighted sampling without replacement: the largest keys u^(1/weight) win
+                double[] keys = new double[TOTAL_MOVES];
+                for (int i = 0; i < TOTAL_MOVES; i++) {
+                    int weight = mask.equals("prefix") ? TOTAL_MOVES - i : i + 1;
+                    keys[i] = Math.pow(random.nextDouble(), 1.0 / weight);
+                }
+                for (int k = 0; k < wildcards; k++) {
+                    int best = -1;
+                    for (int i = 0; i < TOTAL_MOVES; i++) {
+                        if (pattern[i] != '*' && (best < 0 || keys[i] > keys[best])) best = i;
+                    }
+                    pattern[best] = '*';
+                }
+            }
+            case "clustered" -> {
+                int masked = 0;
+                while (masked < wildcards) {
+                    int start = random.nextInt(TOTAL_MOVES);
+                    int length = 1 + random.nextInt(Math.min(wildcards - masked, LONGEST_CLUSTER));
+                    for (int i = start; i < Math.min(TOTAL_MOVES, start + length) && masked < wildcards; i++) {
+                        if (pattern[i] != '*') {
+                            pattern[i] = '*';
+                            masked++;
+                        }
+                    }
+                }
+            }
+            default -> throw new IllegalArgumentException("Unknown mask " + mask);
+        }
+        return new String(pattern);
+    }
+
+    /**
+     * Changes one or two fixed moves of the pattern until it has no path left, null if no attempt got there.
+     */
+    public String infeasibleMutation(String pattern) {
+        String directions = "DURL";
+        for (int attempt = 0; attempt < MUTATION_ATTEMPTS; attempt++) {
+            char[] mutated = pattern.toCharArray();
+            int changes = 1 + random.nextInt(2);
+            for (int c = 0; c < changes; c++) {
+                int i = random.nextInt(TOTAL_MOVES);
+                if (mutated[i] == '*') continue;
+                char replacement;
+                do {
+                    replacement = directions.charAt(random.nextInt(4));
+                } while (replacement == pattern.charAt(i));
+                mutated[i] = replacement;
+            }
+            String candidate = new String(mutated);
+            if (!candidate.equals(pattern) && measure(candidate)[0] == 0) {
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Count and search nodes of a pattern, both 0 when the feasibility masks already rule it out.
+     */
+    public long[] measure(String path) {
+        CompiledPattern pattern = CompiledPattern.compile(path);
+        if (!pattern.canMatch()) {
+            return new long[]{0, 0};
+        }
+        long nodesBefore = kernel.nodes();
+        long count = kernel.count(pattern, null, START_POS, 0, 1L << START_POS);
+        return new long[]{count, kernel.nodes() - nodesBefore};
+    }
+
+    /**
+     * Generates count patterns per mask and the infeasible mutations of randomly chosen ones.
+     */
+    public List<Entry> generate(int count, int minWildcards, int maxWildcards, String[] masks,
+                                int infeasible, boolean measured) {
+        List<Entry> entries = new ArrayList<>();
+        for (String mask : masks) {
+            for (int i = 0; i < count; i++) {
+                int wildcards = minWildcards + random.nextInt(maxWildcards - minWildcards + 1);
+                String pattern = mask(randomPath(), wildcards, mask);
+                entries.add(entry(pattern, mask, measured));
+            }
+        }
+
+        int bases = entries.size();
+        for (int i = 0; i < infeasible && bases > 0; i++) {
+            Entry base = entries.get(random.nextInt(bases));
+            String mutation = infeasibleMutation(base.pattern());
+            if (mutation != null) {
+                entries.add(entry(mutation, "infeasible", measured));
+            }
+        }
+        return entries;
+    }
+
+    private Entry entry(String pattern, String kind, boolean measured) {
+        int wildcards = (int) pattern.chars().filter(move -> move == '*').count();
+        if (!measured) {
+            return new Entry(pattern, kind, wildcards, -1, -1);
+        }
+        long[] result = measure(pattern);
+        if (result[0] == 0 && !kind.equals("infeasible")) {
+            throw new IllegalStateException("Masked path lost its solution: " + pattern);
+        }
+        return new Entry(pattern, kind, wildcards, result[0], result[1]);
+    }
+
+    public static void main(String[] args) {
+        long seed = 42;
+        int count = 20;
+        int minWildcards = 20, maxWildcards = 20;
+        String[] masks = MASKS;
+        int infeasible = 5;
+        boolean patternsOnly = false;
+        boolean measured = true;
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--seed" -> seed = Long.parseLong(args[++i]);
+                case "--count" -> count = Integer.parseInt(args[++i]);
+                case "--wildcards" -> {
+                    String[] range = args[++i].split("-");
+                    minWildcards = Integer.parseInt(range[0]);
+                    maxWildcards = Integer.parseInt(range[range.length - 1]);
+                }
+                case "--mask" -> masks = args[++i].equals("all") ? MASKS : new String[]{args[i]};
+                case "--infeasible" -> infeasible = Integer.parseInt(args[++i]);
+                case "--patterns-only" -> patternsOnly = true;
+                case "--no-measure" -> measured = false;
+                default -> throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+        if (minWildcards < 0 || maxWildcards > TOTAL_MOVES || minWildcards > maxWildcards) {
+            throw new IllegalArgumentException("Wildcards must be a range within 0-" + TOTAL_MOVES);
+        }
+
+        List<Entry> entries = new CorpusGenerator(seed)
+                .generate(count, minWildcards, maxWildcards, masks, infeasible, measured && !patternsOnly);
+        for (Entry entry : entries) {
+            System.out.println(patternsOnly ? entry.pattern() : entry.toString());
+        }
+    }
+}
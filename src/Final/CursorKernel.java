@@ -0,0 +1,112 @@
+package Final;
+
+/**
+ * The iterative kernel as it was before MoveGenerator, kept as the baseline of KernelBenchmark.
+ * Every depth walks a direction cursor through the NEXT table and tests each neighbour against the
+ * visited set and feasibility mask one at a time. Pruning is SearchKernel's, so the two kernels visit
+ * the same nodes and differ only in move generation. No transposition table or budget.
+ */
+final class CursorKernel {
+    private static final int GRID_SIZE = 8;
+    private static final int TOTAL_MOVES = 63;
+    private static final int END_POS = (GRID_SIZE - 1) * GRID_SIZE;
+
+    // Possible movement directions
+    private static final int[] DX = {1, -1, 0, 0};  // Down, Up, Right, Left
+    private static final int[] DY = {0, 0, 1, -1};
+
+    // NEXT[pos * 4 + dir] is the cell reached from pos in direction dir, -1 outside the grid
+    private static final int[] NEXT = new int[GRID_SIZE * GRID_SIZE * 4];
+
+    static {
+        for (int x = 0; x < GRID_SIZE; x++) {
+            for (int y = 0; y < GRID_SIZE; y++) {
+                int pos = x * GRID_SIZE + y;
+                for (int dir = 0; dir < 4; dir++) {
+                    int newX = x + DX[dir];
+                    int newY = y + DY[dir];
+                    boolean valid = newX >= 0 && newX < GRID_SIZE && newY >= 0 && newY < GRID_SIZE;
+                    NEXT[pos * 4 + dir] = valid ? newX * GRID_SIZE + newY : -1;
+                }
+            }
+        }
+    }
+
+    // Per-depth stacks, indexed by move index
+    private final int[] positions = new int[TOTAL_MOVES + 1];
+    private final long[] visitedSets = new long[TOTAL_MOVES + 1];
+    private final int[] cursors = new int[TOTAL_MOVES + 1];
+    private final int[] lastDirections = new int[TOTAL_MOVES + 1];
+    private final long[] counts = new long[TOTAL_MOVES + 1];
+
+    private long nodes = 0;
+
+    /**
+     * Counts the paths of the subtree rooted at pos after moveIndex moves.
+     */
+    long count(CompiledPattern pattern, int pos, int moveIndex, long visited) {
+        if (moveIndex == TOTAL_MOVES) {
+            return pos == END_POS ? 1 : 0;
+        }
+        if (!SearchKernel.lookAhead(pos, TOTAL_MOVES - moveIndex, visited)) {
+            return 0;
+        }
+
+        byte[] moves = pattern.moves;
+        long[] feasible = pattern.feasible;
+        int base = moveIndex;
+        int depth = base;
+        enter(depth, pos, visited, moves[depth]);
+
+        while (true) {
+            if (cursors[depth] > lastDirections[depth]) {
+                // Every direction tried, hand the subtree count to the parent
+                long subtree = counts[depth];
+                if (depth == base) {
+                    return subtree;
+                }
+                depth--;
+                counts[depth] += subtree;
+                continue;
+            }
+
+            int next = NEXT[positions[depth] * 4 + cursors[depth]++];
+            if (next < 0) continue;
+            long bitMask = 1L << next;
+            long currentVisited = visitedSets[depth];
+            if ((currentVisited & bitMask) != 0 || (feasible[depth + 1] & bitMask) == 0) continue;
+
+            // The feasibility mask only allows the end cell for the last move
+            if (depth + 1 == TOTAL_MOVES) {
+                counts[depth]++;
+                nodes++;
+                continue;
+            }
+
+            long nextVisited = currentVisited | bitMask;
+            if (!SearchKernel.lookAhead(next, TOTAL_MOVES - depth - 1, nextVisited)) continue;
+
+            depth++;
+            enter(depth, next, nextVisited, moves[depth]);
+        }
+    }
+
+    private void enter(int depth, int pos, long visited, byte move) {
+        positions[depth] = pos;
+        visitedSets[depth] = visited;
+        counts[depth] = 0;
+        if (move == CompiledPattern.WILDCARD) {
+            cursors[depth] = 0;
+            lastDirections[depth] = 3;
+        } else {
+            cursors[depth] = move;
+            lastDirections[depth] = move;
+        }
+        nodes++;
+    }
+
+    // Nodes entered by this kernel since it was created
+    long nodes() {
+        return nodes;
+    }
+}
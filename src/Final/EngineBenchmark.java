@@ -0,0 +1,365 @@
+package Final;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+
+import javax.management.NotificationEmitter;
+import javax.management.openmbean.CompositeData;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Compares every engine of the repo on the PatternCorpus patterns.
+ * The engines read their pattern from stdin, so the common entry point is the engine's main, which
+ * is fed the pattern and whose "Total paths" is read back. PathFinder ignores stdin and is called
+ * through countPaths. Every fork is a fresh JVM, with the thread count applied through
+ * -XX:ActiveProcessorCount and the common pool parallelism, that runs the engine for warm-up
+ * iterations first, discarded so the JIT has compiled the search, then for the measured iterations.
+ * Only the engines' public entry points are called: every main zeroes its own static path counter
+ * when it starts, so repeated iterations in one JVM report the right count.
+ * Every measured iteration reports its GC count, GC time and allocated bytes (heap growth plus the
+ * bytes every collection reclaimed); a row is the median and minimum over all forks' iterations.
+ *
+ * Usage: java Final.EngineBenchmark [--engines a,b] [--patterns 0,5] [--threads 1,4]
+ *                                   [--warmup 3] [--iterations 5] [--forks 2] [--timeout seconds]
+ */
+public class EngineBenchmark {
+    // Engine name to main class and its arguments, in the order the engines were written
+    private static final String[][] ENGINES = {
+            {"singlethread", "singlethread"},
+            {"nonearlyeliminate", "nonearlyeliminate"},
+            {"TotalPath", "TotalPath"},
+            {"Symmetry_approach", "Symmetry_approach"},
+            {"Symmetry_ver2", "Symmetry_ver2"},
+            {"WPathToEndCheck", "WPathToEndCheck"},
+            {"Pre_compute_valid_move", "Pre_compute_valid_move"},
+            {"Parallel_optimize", "Parallel_optimize"},
+            {"TotalPath2", "ADT_Self_Implement.TotalPath2"},
+            {"PathFinder", "PathFinder"},
+            {"Final.TotalPath", "Final.TotalPath"},
+            {"MeetInTheMiddle", "Final.MeetInTheMiddle"},
+            {"ProfileDP", "Final.ProfileDP"},
+            {"GridPath", "Final.GridPath", "8", "8"},
+    };
+
+    private static final String CHILD_FLAG = "--child";
+    private static final String RESULT_PREFIX = "RESULT ";
+    private static final Pattern TOTAL_PATHS = Pattern.compile("Total paths(?: found)?: (\\d+)");
+    private static final Pattern TIME_MS = Pattern.compile("Time \\(ms\\): (\\d+)");
+
+    /**
+     * One fork's measurement, engineMillis is -1 when the engine printed no time.
+     */
+    record Sample(long paths, long engineMillis, long wallMillis, long gcCount, long gcMillis, long allocatedBytes) {
+        static Sample parse(String line) {
+            String[] fields = line.substring(RESULT_PREFIX.length()).trim().split(" ");
+            return new Sample(Long.parseLong(fields[0]), Long.parseLong(fields[1]), Long.parseLong(fields[2]),
+                    Long.parseLong(fields[3]), Long.parseLong(fields[4]), Long.parseLong(fields[5]));
+        }
+
+        String format() {
+            return RESULT_PREFIX + paths + " " + engineMillis + " " + wallMillis + " "
+                    + gcCount + " " + gcMillis + " " + allocatedBytes;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0 && args[0].equals(CHILD_FLAG)) {
+            runChild(args[1], args[2], Integer.parseInt(args[3]), Integer.parseInt(args[4]),
+                    Arrays.copyOfRange(args, 5, args.length));
+            return;
+        }
+
+        Map<String, String> options = parseOptions(args);
+        List<String[]> engines = selectEngines(options.get("--engines"));
+        int[] patterns = parseInts(options.get("--patterns"), indices(PatternCorpus.PATTERNS.length));
+        int[] threads = parseInts(options.get("--threads"), new int[]{Runtime.getRuntime().availableProcessors()});
+        int warmup = Integer.parseInt(options.getOrDefault("--warmup", "3"));
+        int iterations = Integer.parseInt(options.getOrDefault("--iterations", "5"));
+        int forks = Integer.parseInt(options.getOrDefault("--forks", "2"));
+        long timeoutSeconds = Long.parseLong(options.getOrDefault("--timeout", "300"));
+
+        System.out.printf("%,d engines x %,d patterns x %,d thread counts, %d forks of %d warm-up + %d measured"
+                + " iterations each%n%n", engines.size(), patterns.length, threads.length, forks, warmup, iterations);
+        System.out.printf("%-24s %7s %7s %10s %10s %10s %10s %8s %8s %10s%n", "Engine", "Threads", "Pattern",
+                "Paths", "Median ms", "Min ms", "Engine ms", "GCs", "GC ms", "Alloc MB");
+
+        for (String[] engine : engines) {
+            for (int threadCount : threads) {
+                for (int patternIndex : patterns) {
+                    System.out.println(measure(engine, threadCount, patternIndex, warmup, iterations, forks,
+                            timeoutSeconds));
+                }
+            }
+        }
+    }
+
+    // One result row: medians over the measured iterations of all forks, or the reason there are none
+    private static String measure(String[] engine, int threads, int patternIndex, int warmup, int iterations,
+                                  int forks, long timeoutSeconds) throws IOException, InterruptedException {
+        String pattern = PatternCorpus.PATTERNS[patternIndex];
+        String prefix = String.format("%-24s %7d %7d ", engine[0], threads, patternIndex);
+
+        List<Sample> samples = new ArrayList<>();
+        for (int fork = 0; fork < forks; fork++) {
+            List<Sample> forkSamples = fork(engine, pattern, threads, warmup, iterations, timeoutSeconds);
+            if (forkSamples == null) {
+                return prefix + "timed out or failed after " + timeoutSeconds + " s";
+            }
+            for (Sample sample : forkSamples) {
+                if (sample.paths() != PatternCorpus.EXPECTED_COUNTS[patternIndex]) {
+                    return prefix + String.format("%10d WRONG, expected %d", sample.paths(),
+                            PatternCorpus.EXPECTED_COUNTS[patternIndex]);
+                }
+            }
+            samples.addAll(forkSamples);
+        }
+
+        long[] wall = samples.stream().mapToLong(Sample::wallMillis).sorted().toArray();
+        long engineMillis = median(samples.stream().mapToLong(Sample::engineMillis).sorted().toArray());
+        return prefix + String.format("%10d %10d %10d %10s %8d %8d %10.1f", samples.get(0).paths(),
+                median(wall), wall[0], engineMillis < 0 ? "-" : Long.toString(engineMillis),
+                median(samples.stream().mapToLong(Sample::gcCount).sorted().toArray()),
+                median(samples.stream().mapToLong(Sample::gcMillis).sorted().toArray()),
+                median(samples.stream().mapToLong(Sample::allocatedBytes).sorted().toArray()) / 1048576.0);
+    }
+
+    // Runs one engine on one pattern in a fresh JVM, the measured iterations or null if it timed out or failed
+    private static List<Sample> fork(String[] engine, String pattern, int threads, int warmup, int iterations,
+                                     long timeoutSeconds) throws IOException, InterruptedException {
+        String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+        List<String> command = new ArrayList<>(List.of(java,
+                "-XX:ActiveProcessorCount=" + threads,
+                "-Djava.util.concurrent.ForkJoinPool.common.parallelism=" + threads,
+                "-cp", System.getProperty("java.class.path"),
+                EngineBenchmark.class.getName(), CHILD_FLAG, engine[1], pattern,
+                Integer.toString(warmup), Integer.toString(iterations)));
+        command.addAll(Arrays.asList(engine).subList(2, engine.length));
+        Process process = new ProcessBuilder(command)
+                .redirectError(ProcessBuilder.Redirect.INHERIT)
+                .start();
+
+        // The child prints one line per iteration, read on a thread of its own so a full pipe cannot block it
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        Thread reader = new Thread(() -> {
+            try (InputStream in = process.getInputStream()) {
+                in.transferTo(output);
+            } catch (IOException ignored) {
+                // The process was killed
+            }
+        });
+        reader.start();
+
+        if (!process.waitFor(timeoutSeconds, TimeUnit.SECONDS)) {
+            process.destroyForcibly();
+            reader.join();
+            return null;
+        }
+        reader.join();
+        List<Sample> samples = new ArrayList<>();
+        for (String line : output.toString(StandardCharsets.UTF_8).split("\n")) {
+            if (line.startsWith(RESULT_PREFIX)) {
+                samples.add(Sample.parse(line));
+            }
+        }
+        return samples.size() == iterations ? samples : null;
+    }
+
+    /**
+     * Child side of a fork: runs the engine warmup times unmeasured, then prints a result line for
+     * each of the measured iterations.
+     */
+    private static void runChild(String mainClass, String pattern, int warmup, int iterations,
+                                 String[] engineArgs) throws Exception {
+        Class<?> engine = Class.forName(mainClass);
+        GcListener gc = new GcListener();
+        for (int iteration = 0; iteration < warmup + iterations; iteration++) {
+            Sample sample = runOnce(engine, pattern, engineArgs, gc);
+            if (iteration >= warmup) {
+                System.out.println(sample.format());
+            }
+        }
+    }
+
+    // One run of the engine with its output captured
+    private static Sample runOnce(Class<?> engine, String pattern, String[] engineArgs, GcListener gc)
+            throws Exception {
+        long gcCount = gc.collections();
+        long gcMillis = gc.collectionMillis();
+        long reclaimed = gc.reclaimedBytes.get();
+        long heapBefore = heapUsed();
+        PrintStream out = System.out;
+        InputStream in = System.in;
+        ByteArrayOutputStream captured = new ByteArrayOutputStream();
+
+        long paths = -1;
+        long start = System.nanoTime();
+        try {
+            System.setOut(new PrintStream(captured, true, StandardCharsets.UTF_8));
+            System.setIn(new ByteArrayInputStream((pattern + "\n").getBytes(StandardCharsets.UTF_8)));
+            if (engine.getName().equals("PathFinder")) {
+                // Its main runs a fixed list, the finder itself takes any pattern
+                Object finder = engine.getConstructor().newInstance();
+                paths = (Long) engine.getMethod("countPaths", String.class).invoke(finder, pattern);
+            } else {
+                engine.getMethod("main", String[].class).invoke(null, (Object) engineArgs.clone());
+            }
+        } finally {
+            System.setOut(out);
+            System.setIn(in);
+        }
+        long wallMillis = (System.nanoTime() - start) / 1_000_000;
+
+        String text = captured.toString(StandardCharsets.UTF_8);
+        long engineMillis = -1;
+        if (paths < 0) {
+            paths = lastMatch(TOTAL_PATHS, text);
+            engineMillis = lastMatch(TIME_MS, text);
+        }
+        gc.awaitNotifications();
+        long allocated = heapUsed() - heapBefore + gc.reclaimedBytes.get() - reclaimed;
+        return new Sample(paths, engineMillis, wallMillis, gc.collections() - gcCount,
+                gc.collectionMillis() - gcMillis, allocated);
+    }
+
+    /**
+     * Sums the heap bytes reclaimed by every collection, like the churn figures of a GC profiler.
+     */
+    private static class GcListener {
+        private final List<GarbageCollectorMXBean> collectors = ManagementFactory.getGarbageCollectorMXBeans();
+        private final Set<String> heapPools = new HashSet<>();
+        private final long countBefore;
+        private final long millisBefore;
+        private final AtomicInteger notified = new AtomicInteger();
+        final AtomicLong reclaimedBytes = new AtomicLong();
+
+        GcListener() {
+            for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+                if (pool.getType() == MemoryType.HEAP) {
+                    heapPools.add(pool.getName());
+                }
+            }
+            for (GarbageCollectorMXBean collector : collectors) {
+                ((NotificationEmitter) collector).addNotificationListener((notification, handback) -> {
+                    if (!notification.getType().equals(GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION)) {
+                        return;
+                    }
+                    GarbageCollectionNotificationInfo info =
+                            GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+                    long before = sumHeap(info.getGcInfo().getMemoryUsageBeforeGc());
+                    long after = sumHeap(info.getGcInfo().getMemoryUsageAfterGc());
+                    reclaimedBytes.addAndGet(before - after);
+                    notified.incrementAndGet();
+                }, null, null);
+            }
+            countBefore = collections();
+            millisBefore = collectionMillis();
+        }
+
+        private long sumHeap(Map<String, MemoryUsage> usage) {
+            long used = 0;
+            for (Map.Entry<String, MemoryUsage> pool : usage.entrySet()) {
+                if (heapPools.contains(pool.getKey())) {
+                    used += pool.getValue().getUsed();
+                }
+            }
+            return used;
+        }
+
+        long collections() {
+            long count = 0;
+            for (GarbageCollectorMXBean collector : collectors) {
+                count += Math.max(0, collector.getCollectionCount());
+            }
+            return count - countBefore;
+        }
+
+        long collectionMillis() {
+            long millis = 0;
+            for (GarbageCollectorMXBean collector : collectors) {
+                millis += Math.max(0, collector.getCollectionTime());
+            }
+            return millis - millisBefore;
+        }
+
+        // Notifications arrive asynchronously, wait up to a second for the last ones
+        void awaitNotifications() throws InterruptedException {
+            long deadline = System.currentTimeMillis() + 1000;
+            while (notified.get() < collections() && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+        }
+    }
+
+    private static long heapUsed() {
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    private static long lastMatch(Pattern pattern, String text) {
+        Matcher matcher = pattern.matcher(text);
+        long value = -1;
+        while (matcher.find()) {
+            value = Long.parseLong(matcher.group(1));
+        }
+        return value;
+    }
+
+    private static long median(long[] sorted) {
+        return sorted[sorted.length / 2];
+    }
+
+    private static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            if (!args[i].startsWith("--")) {
+                throw new IllegalArgumentException("Unexpected argument " + args[i]);
+            }
+            options.put(args[i], args[i + 1]);
+        }
+        return options;
+    }
+
+    private static List<String[]> selectEngines(String names) {
+        if (names == null) {
+            return Arrays.asList(ENGINES);
+        }
+        List<String[]> selected = new ArrayList<>();
+        for (String name : names.split(",")) {
+            String[] match = Arrays.stream(ENGINES).filter(engine -> engine[0].equals(name)).findFirst()
+                    .orElseThrow(() -> new IllegalArgumentException("Unknown engine " + name));
+            selected.add(match);
+        }
+        return selected;
+    }
+
+    private static int[] parseInts(String list, int[] defaults) {
+        return list == null ? defaults : Arrays.stream(list.split(",")).mapToInt(Integer::parseInt).toArray();
+    }
+
+    private static int[] indices(int count) {
+        int[] indices = new int[count];
+        Arrays.setAll(indices, i -> i);
+        return indices;
+    }
+}
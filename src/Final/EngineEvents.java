@@ -0,0 +1,204 @@
+package Final;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Percentage;
+import jdk.jfr.Period;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * JDK Flight Recorder events of the fork/join engines (Final.TotalPath, Parallel_optimize and
+ * ADT_Self_Implement.TotalPath2):
+ * - Final.TaskForked: a task split into child tasks
+ * - Final.TaskExecuted: one task from start to finish, with the nodes it searched itself
+ * - Final.WorkerThroughput: periodic nodes per second of every pool worker
+ * - Final.PruneCounters: periodic checks and prunes per rule, only with -Dtotalpath.stats=true
+ * The event classes are only loaded once the recorder is running, at startup with
+ * -XX:StartFlightRecording or later with jcmd JFR.start: loading the first event class registers the
+ * JFR metadata, which takes a good part of a second. Before that every hook costs one volatile read,
+ * afterwards a disabled event costs one check in shouldCommit. totalpath.jfc holds settings light enough for production runs:
+ *   java -XX:StartFlightRecording:settings=default,settings=src/Final/totalpath.jfc,filename=run.jfr ...
+ *   jfr print --categories "Path Counting" run.jfr
+ */
+public final class EngineEvents {
+    // Nodes searched inside tasks, one stripe per common pool worker, sampled by the throughput event and
+    // QueryProgress; workers of the pools QueryPlanner and BatchRunner create share the external stripe
+    private static final StripedCounter workerNodes = new StripedCounter(ForkJoinPool.commonPool());
+    private static long[] lastNodes = new long[0];
+    private static long lastSampleNanos = System.nanoTime();
+    private static final AtomicBoolean periodicRegistered = new AtomicBoolean();
+
+    @Name("Final.TaskForked")
+    @Label("Task Forked")
+    @Category({"Path Counting", "Tasks"})
+    @Description("A search task split its node into child tasks")
+    @StackTrace(false)
+    public static final class TaskForked extends Event {
+        @Label("Engine")
+        String engine;
+        @Label("Move Index")
+        int moveIndex;
+        @Label("Children")
+        int children;
+    }
+
+    @Name("Final.TaskExecuted")
+    @Label("Task Executed")
+    @Category({"Path Counting", "Tasks"})
+    @Description("A search task ran to completion; the duration includes waiting for its children, "
+            + "the nodes only count the ones searched by the task itself")
+    @StackTrace(false)
+    @Threshold("20 ms")
+    public static final class TaskExecuted extends Event {
+        @Label("Engine")
+        String engine;
+        @Label("Move Index")
+        int moveIndex;
+        @Label("Nodes")
+        long nodes;
+    }
+
+    @Name("Final.WorkerThroughput")
+    @Label("Worker Throughput")
+    @Category({"Path Counting", "Workers"})
+    @Description("Nodes searched by one pool worker since the previous sample")
+    @StackTrace(false)
+    @Period("1 s")
+    public static final class WorkerThroughput extends Event {
+        @Label("Worker")
+        int worker;
+        @Label("Nodes")
+        long nodes;
+        @Label("Nodes per Second")
+        long nodesPerSecond;
+    }
+
+    @Name("Final.PruneCounters")
+    @Label("Prune Counters")
+    @Category({"Path Counting", "Pruning"})
+    @Description("Checks and prunes of one pruning rule so far, recorded with -Dtotalpath.stats=true")
+    @StackTrace(false)
+    @Period("5 s")
+    public static final class PruneCounters extends Event {
+        @Label("Rule")
+        String rule;
+        @Label("Checks")
+        long checks;
+        @Label("Prunes")
+        long prunes;
+        @Label("Prune Rate")
+        @Percentage
+        double rate;
+    }
+
+    private EngineEvents() {
+    }
+
+    // Whether the recorder runs, registering the periodic events the first time it does
+    private static boolean recorderRunning() {
+        if (!FlightRecorder.isInitialized()) {
+            return false;
+        }
+        if (!periodicRegistered.get() && periodicRegistered.compareAndSet(false, true)) {
+            FlightRecorder.addPeriodicEvent(WorkerThroughput.class, EngineEvents::emitThroughput);
+            FlightRecorder.addPeriodicEvent(PruneCounters.class, EngineEvents::emitPruneCounters);
+        }
+        return true;
+    }
+
+    // Nodes searched by the finished tasks of all engines so far
+    public static long nodes() {
+        return workerNodes.sum();
+    }
+
+    // The same per common pool worker, index i being worker i; tasks on other pools only count in nodes()
+    public static long[] nodesPerWorker() {
+        return workerNodes.perWorker();
+    }
+
+    /**
+     * Starts timing a task, to be passed to taskFinished; null while the recorder is not running.
+     */
+    public static TaskExecuted taskStarted() {
+        if (!recorderRunning()) {
+            return null;
+        }
+        TaskExecuted event = new TaskExecuted();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Ends a task that searched the given nodes itself, without the ones of its forked children.
+     */
+    public static void taskFinished(TaskExecuted event, String engine, int moveIndex, long nodes) {
+        workerNodes.add(nodes);
+        if (event == null) {
+            return;
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.engine = engine;
+            event.moveIndex = moveIndex;
+            event.nodes = nodes;
+            event.commit();
+        }
+    }
+
+    public static void taskForked(String engine, int moveIndex, int children) {
+        if (!recorderRunning()) {
+            return;
+        }
+        TaskForked event = new TaskForked();
+        if (event.shouldCommit()) {
+            event.engine = engine;
+            event.moveIndex = moveIndex;
+            event.children = children;
+            event.commit();
+        }
+    }
+
+    // Called by the recorder's periodic thread only
+    private static void emitThroughput() {
+        long now = System.nanoTime();
+        long[] nodes = workerNodes.perWorker();
+        if (lastNodes.length != nodes.length) {
+            lastNodes = new long[nodes.length];
+        }
+        double seconds = Math.max(1e-9, (now - lastSampleNanos) / 1e9);
+        for (int worker = 0; worker < nodes.length; worker++) {
+            long delta = nodes[worker] - lastNodes[worker];
+            WorkerThroughput event = new WorkerThroughput();
+            event.worker = worker;
+            event.nodes = delta;
+            event.nodesPerSecond = (long) (delta / seconds);
+            event.commit();
+        }
+        lastNodes = nodes;
+        lastSampleNanos = now;
+    }
+
+    private static void emitPruneCounters() {
+        if (!PruneStats.ENABLED) {
+            return;
+        }
+        String[] rules = PruneStats.rules();
+        long[][] totals = PruneStats.ruleTotals();
+        for (int rule = 0; rule < rules.length; rule++) {
+            PruneCounters event = new PruneCounters();
+            event.rule = rules[rule];
+            event.checks = totals[rule][0];
+            event.prunes = totals[rule][1];
+            event.rate = event.checks > 0 ? (double) event.prunes / event.checks : 0;
+            event.commit();
+        }
+    }
+}
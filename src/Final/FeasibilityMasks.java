@@ -0,0 +1,97 @@
+package Final;
+
+import java.util.Arrays;
+
+/**
+ * Compiles a pattern into per-step bitmasks of the cells the walker can legally occupy after i moves.
+ * A cell is allowed at step i when it is reachable from (0,0) by the first i moves and (7,0) is
+ * reachable from it by the remaining moves, with the start cell only used at step 0 and the end cell
+ * only at step 63. A step whose mask is a single cell pins that cell, so it is removed from every
+ * other step and the passes repeat until nothing changes.
+ *
+ * The search then prunes a move with a single AND against the mask of the next step, and a pattern
+ * with an empty mask can never match.
+ */
+public final class FeasibilityMasks {
+    private static final int GRID_SIZE = 8;
+    private static final int TOTAL_MOVES = 63;
+    private static final long START_BIT = 1L;
+    private static final long END_BIT = 1L << ((GRID_SIZE - 1) * GRID_SIZE);
+
+    private FeasibilityMasks() {
+    }
+
+    /**
+     * Returns TOTAL_MOVES + 1 masks, mask[i] being the cells allowed after i moves.
+     * All masks are 0 when the pattern can never match.
+     */
+    public static long[] compile(String path) {
+        long[] masks = new long[TOTAL_MOVES + 1];
+        masks[0] = START_BIT;
+        masks[TOTAL_MOVES] = END_BIT;
+        for (int i = 1; i < TOTAL_MOVES; i++) {
+            masks[i] = ~(START_BIT | END_BIT);
+        }
+
+        boolean changed = true;
+        while (changed) {
+            // Forward reachability from the start
+            for (int i = 0; i < TOTAL_MOVES; i++) {
+                masks[i + 1] &= forward(masks[i], path.charAt(i));
+            }
+            // Backward reachability from the end
+            for (int i = TOTAL_MOVES - 1; i >= 0; i--) {
+                masks[i] &= backward(masks[i + 1], path.charAt(i));
+            }
+
+            for (long mask : masks) {
+                if (mask == 0) {
+                    Arrays.fill(masks, 0L);
+                    return masks;
+                }
+            }
+
+            // A cell pinned to one step cannot be used by any other step
+            changed = false;
+            for (int i = 0; i <= TOTAL_MOVES; i++) {
+                if (Long.bitCount(masks[i]) != 1) continue;
+                for (int j = 0; j <= TOTAL_MOVES; j++) {
+                    if (j != i && (masks[j] & masks[i]) != 0) {
+                        masks[j] &= ~masks[i];
+                        changed = true;
+                    }
+                }
+            }
+        }
+        return masks;
+    }
+
+    /**
+     * Whether the compiled pattern admits any path at all.
+     */
+    public static boolean isFeasible(long[] masks) {
+        return masks[0] != 0;
+    }
+
+    // Cells reachable from any cell of the set by the given move
+    private static long forward(long cells, char move) {
+        return switch (move) {
+            case 'D' -> Bitboard.down(cells);
+            case 'U' -> Bitboard.up(cells);
+            case 'R' -> Bitboard.right(cells);
+            case 'L' -> Bitboard.left(cells);
+            default -> Bitboard.neighbors(cells);
+        };
+    }
+
+    // Cells from which the given move lands in the set
+    private static long backward(long cells, char move) {
+        return switch (move) {
+            case 'D' -> Bitboard.up(cells);
+            case 'U' -> Bitboard.down(cells);
+            case 'R' -> Bitboard.left(cells);
+            case 'L' -> Bitboard.right(cells);
+            default -> Bitboard.neighbors(cells);
+        };
+    }
+}
@@ -0,0 +1,150 @@
+package Final;
+
+import java.util.Arrays;
+import java.util.Scanner;
+
+/**
+ * Breadth-first expansion of a pattern's first moves with state merging.
+ * Every depth is a StateTable, so prefixes that reach the same (position, visited) state are folded
+ * into one entry whose count is the number of prefixes. The parallel search then explores each
+ * distinct state once and multiplies its path count by that multiplicity; two prefixes with the
+ * same visited set and position have exactly the same completions, so nothing is lost.
+ *
+ * prefixesAt(d) / statesAt(d) is the merge ratio at depth d, which is what to look at when picking
+ * the expansion depth: deeper merges more but the frontier grows with the number of wildcards.
+ */
+public final class FrontierExpansion {
+    private static final int TOTAL_MOVES = 63;
+    private static final int GRID_SIZE = 8;
+    private static final int STATES_PER_BUDGET_CHECK = 4096;
+
+    private final int depth;
+    private final StateTable states;
+    private final long[] prefixes;   // Paths reaching each depth before merging
+    private final int[] distinct;    // States left at each depth after merging
+
+    private FrontierExpansion(int depth, StateTable states, long[] prefixes, int[] distinct) {
+        this.depth = depth;
+        this.states = states;
+        this.prefixes = prefixes;
+        this.distinct = distinct;
+    }
+
+    /**
+     * Expands the pattern to the given depth, pruning states that can no longer reach the end.
+     * The expansion stops early if the frontier becomes empty.
+     */
+    public static FrontierExpansion expand(CompiledPattern pattern, int depth) {
+        return expand(pattern, depth, null);
+    }
+
+    /**
+     * Expands as above while the budget, if not null, has room: every expanded state is charged as a
+     * node, and once the budget runs out the expansion stops at the last complete depth, which depth()
+     * then reports.
+     */
+    public static FrontierExpansion expand(CompiledPattern pattern, int depth, SearchBudget budget) {
+        depth = Math.max(0, Math.min(depth, TOTAL_MOVES));
+        long[] prefixes = new long[depth + 1];
+        int[] distinct = new int[depth + 1];
+
+        StateTable layer = new StateTable();
+        layer.add(0, 1L, 1);
+        prefixes[0] = 1;
+        distinct[0] = 1;
+
+        for (int moveIndex = 0; moveIndex < depth; moveIndex++) {
+            StateTable next = new StateTable(layer.size() * 2);
+            int movesLeft = TOTAL_MOVES - moveIndex - 1;
+            int expanded = 0;
+            for (int slot = 0; slot < layer.capacity(); slot++) {
+                if (!layer.isOccupied(slot)) continue;
+                if (budget != null && ++expanded % STATES_PER_BUDGET_CHECK == 0
+                        && !budget.charge(STATES_PER_BUDGET_CHECK)) {
+                    return stopped(layer, moveIndex, prefixes, distinct);
+                }
+                int pos = layer.positionAt(slot);
+                long visited = layer.visitedAt(slot);
+                long count = layer.countAt(slot);
+
+                long candidates = MoveGenerator.candidates(pattern, moveIndex, pos, visited);
+                if (PruneStats.ENABLED) {
+                    PruneStats.node(moveIndex, MoveGenerator.candidates(pos, visited, pattern.moveAt(moveIndex)), candidates);
+                }
+                while (candidates != 0) {
+                    int cell = Long.numberOfTrailingZeros(candidates);
+                    long nextVisited = visited | (candidates & -candidates);
+                    candidates &= candidates - 1;
+                    if (movesLeft == 0 || SearchKernel.canReachEnd(cell, movesLeft, nextVisited)) {
+                        next.add(cell, nextVisited, count);
+                        prefixes[moveIndex + 1] += count;
+                    }
+                }
+            }
+            if (budget != null && !budget.charge(expanded % STATES_PER_BUDGET_CHECK)) {
+                return stopped(layer, moveIndex, prefixes, distinct);
+            }
+            distinct[moveIndex + 1] = next.size();
+            layer = next;
+            if (layer.size() == 0) break;
+        }
+        return new FrontierExpansion(depth, layer, prefixes, distinct);
+    }
+
+    // The expansion cut short by its budget, ending at the complete layer of moveIndex
+    private static FrontierExpansion stopped(StateTable layer, int moveIndex, long[] prefixes, int[] distinct) {
+        return new FrontierExpansion(moveIndex, layer, Arrays.copyOf(prefixes, moveIndex + 1),
+                Arrays.copyOf(distinct, moveIndex + 1));
+    }
+
+    public int depth() {
+        return depth;
+    }
+
+    // The merged frontier at depth(), each count being the number of prefixes reaching that state
+    public StateTable states() {
+        return states;
+    }
+
+    public long prefixesAt(int moveIndex) {
+        return prefixes[moveIndex];
+    }
+
+    public int statesAt(int moveIndex) {
+        return distinct[moveIndex];
+    }
+
+    // Prefixes per distinct state, 1.0 means no merging happened
+    public double mergeRatioAt(int moveIndex) {
+        return distinct[moveIndex] == 0 ? 1.0 : (double) prefixes[moveIndex] / distinct[moveIndex];
+    }
+
+    /**
+     * One line per depth with prefixes, distinct states and merge ratio.
+     */
+    public String report() {
+        StringBuilder sb = new StringBuilder("Depth  Prefixes  States  Merge ratio");
+        for (int d = 0; d <= depth; d++) {
+            sb.append(String.format("%n%5d  %,8d  %,6d  %.2f", d, prefixes[d], distinct[d], mergeRatioAt(d)));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Prints the merge ratio per depth for a pattern, up to the depth given as first argument.
+     */
+    public static void main(String[] args) {
+        int maxDepth = args.length > 0 ? Integer.parseInt(args[0]) : 2 * GRID_SIZE;
+        Scanner scanner = new Scanner(System.in);
+        System.out.print("Input:\n");
+        String path = scanner.nextLine();
+
+        long startTime = System.currentTimeMillis();
+        FrontierExpansion frontier = expand(CompiledPattern.compile(path), maxDepth);
+        long totalTime = System.currentTimeMillis() - startTime;
+
+        System.out.println(frontier.report());
+        System.out.println("Time (ms): " + totalTime);
+        scanner.close();
+    }
+}
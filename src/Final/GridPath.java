@@ -0,0 +1,216 @@
+package Final;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Scanner;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Path counting for any grid size and any start and end cell.
+ * The standard 8x8 puzzle is handed to the existing 8x8 engines, so it runs exactly as fast as
+ * before. Other grids expand their first moves into prefixes until there are enough to keep every
+ * worker busy, then count each prefix on a per-thread GridSearch whose visited set fits the grid.
+ *
+ * Usage: java Final.GridPath <rows> <cols> [startRow startCol endRow endCol], pattern on stdin
+ *        java Final.GridPath --verify
+ */
+public class GridPath {
+    // Prefixes generated per worker, enough for work stealing to balance uneven subtrees
+    private static final int PREFIXES_PER_WORKER = 64;
+    private static final int PREFIXES_PER_TASK = 4;
+
+    private final GridSpec grid;
+    private final String pattern;
+    private final ThreadLocal<GridSearch> kernels;
+
+    public GridPath(GridSpec grid, String pattern) {
+        this.grid = grid;
+        this.pattern = pattern;
+        this.kernels = ThreadLocal.withInitial(() -> GridSearch.create(grid, pattern));
+    }
+
+    /**
+     * Counts the paths of the pattern on the grid.
+     */
+    public long countPaths(ForkJoinPool pool) {
+        if (grid.isStandard8x8()) {
+            return TotalPath.countPaths(pattern, pool);
+        }
+        if (!grid.parityAllowsPath()) {
+            return 0;
+        }
+        List<int[]> prefixes = expand(pool.getParallelism() * PREFIXES_PER_WORKER);
+        if (prefixes.isEmpty()) {
+            return 0;
+        }
+        return pool.invoke(new PrefixTask(prefixes, 0, prefixes.size()));
+    }
+
+    /**
+     * Breadth-first prefixes, one move deeper at a time until there are at least target of them.
+     * Each prefix is the list of cells visited so far.
+     */
+    private List<int[]> expand(int target) {
+        int cols = grid.cols();
+        int[] dRow = {1, -1, 0, 0};  // Down, Up, Right, Left
+        int[] dCol = {0, 0, 1, -1};
+
+        List<int[]> layer = new ArrayList<>();
+        layer.add(new int[]{grid.start()});
+        int depth = 0;
+        while (layer.size() < target && depth < grid.totalMoves() - 1) {
+            byte move = CompiledPattern.encode(pattern.charAt(depth));
+            List<int[]> nextLayer = new ArrayList<>();
+            for (int[] prefix : layer) {
+                int pos = prefix[depth];
+                for (int dir = 0; dir < 4; dir++) {
+                    if (move != CompiledPattern.WILDCARD && move != dir) continue;
+                    int row = pos / cols + dRow[dir];
+                    int col = pos % cols + dCol[dir];
+                    if (row < 0 || row >= grid.rows() || col < 0 || col >= cols) continue;
+                    int cell = row * cols + col;
+                    if (cell == grid.end() || contains(prefix, cell)) continue;
+
+                    int[] longer = new int[depth + 2];
+                    System.arraycopy(prefix, 0, longer, 0, depth + 1);
+                    longer[depth + 1] = cell;
+                    nextLayer.add(longer);
+                }
+            }
+            layer = nextLayer;
+            depth++;
+            if (layer.isEmpty()) break;
+        }
+        return layer;
+    }
+
+    private static boolean contains(int[] prefix, int cell) {
+        for (int visited : prefix) {
+            if (visited == cell) return true;
+        }
+        return false;
+    }
+
+    private class PrefixTask extends RecursiveTask<Long> {
+        private final List<int[]> prefixes;
+        private final int from, to;
+
+        PrefixTask(List<int[]> prefixes, int from, int to) {
+            this.prefixes = prefixes;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Long compute() {
+            if (to - from > PREFIXES_PER_TASK) {
+                int mid = (from + to) >>> 1;
+                PrefixTask right = new PrefixTask(prefixes, mid, to);
+                right.fork();
+                long left = new PrefixTask(prefixes, from, mid).compute();
+                return left + right.join();
+            }
+            GridSearch kernel = kernels.get();
+            long total = 0;
+            for (int i = from; i < to; i++) {
+                int[] prefix = prefixes.get(i);
+                total += kernel.count(prefix, prefix.length);
+            }
+            return total;
+        }
+    }
+
+    private static boolean isValidInput(String path, GridSpec grid) {
+        if (path.length() != grid.totalMoves()) {
+            return false;
+        }
+        for (int i = 0; i < path.length(); i++) {
+            if (CompiledPattern.encode(path.charAt(i)) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks the three visited set representations against each other and against the profile DP
+     * on small grids, and the one-word kernel against SearchKernel on 8x8 patterns.
+     * Returns the number of mismatches.
+     */
+    public static int verify() {
+        int failures = 0;
+        int[][] sizes = {{2, 2}, {3, 3}, {3, 4}, {4, 4}, {4, 5}, {5, 5}, {5, 6}, {6, 6}};
+        for (int[] size : sizes) {
+            int rows = size[0], cols = size[1];
+            ProfileDP dp = new ProfileDP(rows, cols);
+            String wildcards = "*".repeat(rows * cols - 1);
+            for (int start = 0; start < rows * cols; start++) {
+                for (int end = 0; end < rows * cols; end++) {
+                    if (start == end) continue;
+                    GridSpec grid = new GridSpec(rows, cols, start / cols, start % cols, end / cols, end % cols);
+                    long expected = dp.countHamiltonianPaths(0L, start, end);
+                    for (int words = 1; words <= 3; words++) {
+                        long actual = GridSearch.create(grid, wildcards, words).count(new int[]{start}, 1);
+                        if (actual != expected) {
+                            System.out.println("Mismatch on " + grid + " with " + words + " words: "
+                                    + actual + " instead of " + expected);
+                            failures++;
+                        }
+                    }
+                }
+            }
+        }
+
+        SearchKernel reference = new SearchKernel();
+        for (String path : PatternCorpus.PATTERNS) {
+            CompiledPattern compiled = CompiledPattern.compile(path);
+            long expected = compiled.canMatch() ? reference.count(compiled, null, 0, 0, 1L) : 0;
+            long actual = GridSearch.create(GridSpec.standard(8, 8), path).count(new int[]{0}, 1);
+            if (actual != expected) {
+                System.out.println("Mismatch on 8x8 pattern " + path + ": " + actual + " instead of " + expected);
+                failures++;
+            }
+        }
+        System.out.println(failures == 0 ? "All grid checks passed" : failures + " grid checks failed");
+        return failures;
+    }
+
+    public static void main(String[] args) {
+        if (args.length > 0 && args[0].equals("--verify")) {
+            System.exit(verify() == 0 ? 0 : 1);
+        }
+        if (args.length != 2 && args.length != 6) {
+            System.out.println("Usage: java Final.GridPath <rows> <cols> [startRow startCol endRow endCol]");
+            return;
+        }
+        int rows = Integer.parseInt(args[0]);
+        int cols = Integer.parseInt(args[1]);
+        GridSpec grid = args.length == 6
+                ? new GridSpec(rows, cols, Integer.parseInt(args[2]), Integer.parseInt(args[3]),
+                        Integer.parseInt(args[4]), Integer.parseInt(args[5]))
+                : GridSpec.standard(rows, cols);
+
+        Scanner scanner = new Scanner(System.in);
+        System.out.print("Input:\n");
+        String path = scanner.nextLine();
+
+        if (!isValidInput(path, grid)) {
+            System.out.println("Invalid input. Path must be " + grid.totalMoves() +
+                    " characters long and contain only U, D, L, R, or *");
+            return;
+        }
+
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        System.out.println("\nUsing " + pool.getParallelism() + " processor threads on a " + grid + " grid");
+
+        long startTime = System.currentTimeMillis();
+        long totalPaths = new GridPath(grid, path).countPaths(pool);
+        long totalTime = System.currentTimeMillis() - startTime;
+
+        System.out.println("\nFinal Results:");
+        System.out.println("Total paths: " + totalPaths);
+        System.out.println("Time (ms): " + totalTime);
+        scanner.close();
+    }
+}
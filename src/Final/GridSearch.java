@@ -0,0 +1,272 @@
+package Final;
+
+/**
+ * Iterative backtracking kernel for a GridSpec of any size.
+ * The search loop, move tables and pruning are shared; only the visited set is specialized by the
+ * number of cells: one long up to 64 cells, two longs up to 128 and a long[] of words beyond that.
+ * Every representation keeps one visited set per depth in preallocated storage, so counting a
+ * subtree allocates nothing. A kernel is not thread-safe; every worker thread keeps one.
+ *
+ * Pruning: the end cell is only entered by the last move, and after each move the free neighbours
+ * of the cell just left must keep two open neighbours (one for the end cell). The path visits a
+ * new cell per move, so the remaining cell count always equals the remaining moves.
+ */
+public abstract class GridSearch {
+    protected final GridSpec grid;
+    protected final int totalMoves;
+    private final int end;
+    private final int[] next;           // next[cell * 4 + dir], -1 off the grid
+    private final byte[] moves;
+
+    // Per-depth stacks, indexed by the number of moves made
+    private final int[] positions;
+    private final int[] cursors;
+    private final int[] lastDirections;
+    private final long[] counts;
+
+    private long nodes = 0;
+
+    protected GridSearch(GridSpec grid, String pattern) {
+        this.grid = grid;
+        this.totalMoves = grid.totalMoves();
+        this.end = grid.end();
+        if (pattern.length() != totalMoves) {
+            throw new IllegalArgumentException("Pattern must be " + totalMoves + " characters long");
+        }
+        this.moves = new byte[totalMoves];
+        for (int i = 0; i < totalMoves; i++) {
+            moves[i] = CompiledPattern.encode(pattern.charAt(i));
+            if (moves[i] < 0) {
+                throw new IllegalArgumentException("Invalid move '" + pattern.charAt(i) + "' at index " + i);
+            }
+        }
+
+        int rows = grid.rows();
+        int cols = grid.cols();
+        int[] dRow = {1, -1, 0, 0};  // Down, Up, Right, Left
+        int[] dCol = {0, 0, 1, -1};
+        this.next = new int[grid.cells() * 4];
+        for (int cell = 0; cell < grid.cells(); cell++) {
+            for (int dir = 0; dir < 4; dir++) {
+                int row = cell / cols + dRow[dir];
+                int col = cell % cols + dCol[dir];
+                next[cell * 4 + dir] = row >= 0 && row < rows && col >= 0 && col < cols ? row * cols + col : -1;
+            }
+        }
+
+        this.positions = new int[totalMoves + 1];
+        this.cursors = new int[totalMoves + 1];
+        this.lastDirections = new int[totalMoves + 1];
+        this.counts = new long[totalMoves + 1];
+    }
+
+    /**
+     * Kernel with the smallest visited set that fits the grid.
+     */
+    public static GridSearch create(GridSpec grid, String pattern) {
+        int cells = grid.cells();
+        if (cells <= 64) return new OneWord(grid, pattern);
+        if (cells <= 128) return new TwoWords(grid, pattern);
+        return new ManyWords(grid, pattern);
+    }
+
+    // Kernel with a chosen representation, for checking the representations against each other
+    static GridSearch create(GridSpec grid, String pattern, int words) {
+        return switch (words) {
+            case 1 -> new OneWord(grid, pattern);
+            case 2 -> new TwoWords(grid, pattern);
+            default -> new ManyWords(grid, pattern);
+        };
+    }
+
+    // Marks the cells of a path prefix as the visited set of depth length - 1
+    protected abstract void setRoot(int[] prefix, int length);
+
+    protected abstract boolean isVisited(int depth, int cell);
+
+    // visited[depth + 1] = visited[depth] plus cell
+    protected abstract void visit(int depth, int cell);
+
+    /**
+     * Counts the completions of a legal path prefix; prefix[0] must be the start cell.
+     */
+    public long count(int[] prefix, int length) {
+        int base = length - 1;
+        int pos = prefix[base];
+        if (base == totalMoves) {
+            return pos == end ? 1 : 0;
+        }
+        if (!grid.parityAllowsPath()) {
+            return 0;
+        }
+        setRoot(prefix, length);
+        int depth = base;
+        enter(depth, pos);
+
+        while (true) {
+            if (cursors[depth] > lastDirections[depth]) {
+                long subtree = counts[depth];
+                if (depth == base) {
+                    return subtree;
+                }
+                depth--;
+                counts[depth] += subtree;
+                continue;
+            }
+
+            pos = positions[depth];
+            int cell = next[pos * 4 + cursors[depth]++];
+            if (cell < 0 || isVisited(depth, cell)) continue;
+
+            if (depth + 1 == totalMoves) {
+                if (cell == end) {
+                    counts[depth]++;
+                    nodes++;
+                }
+                continue;
+            }
+            // The end cell is only entered by the last move
+            if (cell == end) continue;
+
+            visit(depth, cell);
+            if (leavesDeadCell(depth + 1, pos)) continue;
+
+            depth++;
+            enter(depth, cell);
+        }
+    }
+
+    private void enter(int depth, int pos) {
+        positions[depth] = pos;
+        counts[depth] = 0;
+        byte move = moves[depth];
+        if (move == CompiledPattern.WILDCARD) {
+            cursors[depth] = 0;
+            lastDirections[depth] = 3;
+        } else {
+            cursors[depth] = move;
+            lastDirections[depth] = move;
+        }
+        nodes++;
+    }
+
+    // Whether a free neighbour of the cell just left is left with too few open neighbours.
+    // The grid is bipartite, so no such neighbour touches the new head and only free cells count.
+    private boolean leavesDeadCell(int depth, int left) {
+        for (int dir = 0; dir < 4; dir++) {
+            int cell = next[left * 4 + dir];
+            if (cell < 0 || isVisited(depth, cell)) continue;
+            int open = 0;
+            for (int d = 0; d < 4; d++) {
+                int neighbour = next[cell * 4 + d];
+                if (neighbour >= 0 && !isVisited(depth, neighbour)) {
+                    open++;
+                }
+            }
+            if (open < (cell == end ? 1 : 2)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Nodes entered by this kernel since it was created
+    public long nodes() {
+        return nodes;
+    }
+
+    private static final class OneWord extends GridSearch {
+        private final long[] visited;
+
+        OneWord(GridSpec grid, String pattern) {
+            super(grid, pattern);
+            visited = new long[totalMoves + 1];
+        }
+
+        @Override
+        protected void setRoot(int[] prefix, int length) {
+            long set = 0;
+            for (int i = 0; i < length; i++) {
+                set |= 1L << prefix[i];
+            }
+            visited[length - 1] = set;
+        }
+
+        @Override
+        protected boolean isVisited(int depth, int cell) {
+            return (visited[depth] & (1L << cell)) != 0;
+        }
+
+        @Override
+        protected void visit(int depth, int cell) {
+            visited[depth + 1] = visited[depth] | (1L << cell);
+        }
+    }
+
+    private static final class TwoWords extends GridSearch {
+        private final long[] low;
+        private final long[] high;
+
+        TwoWords(GridSpec grid, String pattern) {
+            super(grid, pattern);
+            low = new long[totalMoves + 1];
+            high = new long[totalMoves + 1];
+        }
+
+        @Override
+        protected void setRoot(int[] prefix, int length) {
+            long lowSet = 0, highSet = 0;
+            for (int i = 0; i < length; i++) {
+                if (prefix[i] < 64) lowSet |= 1L << prefix[i];
+                else highSet |= 1L << prefix[i];
+            }
+            low[length - 1] = lowSet;
+            high[length - 1] = highSet;
+        }
+
+        @Override
+        protected boolean isVisited(int depth, int cell) {
+            long word = cell < 64 ? low[depth] : high[depth];
+            return (word & (1L << cell)) != 0;
+        }
+
+        @Override
+        protected void visit(int depth, int cell) {
+            low[depth + 1] = cell < 64 ? low[depth] | (1L << cell) : low[depth];
+            high[depth + 1] = cell < 64 ? high[depth] : high[depth] | (1L << cell);
+        }
+    }
+
+    private static final class ManyWords extends GridSearch {
+        private final int words;
+        private final long[] visited;   // Row depth * words holds the visited set of that depth
+
+        ManyWords(GridSpec grid, String pattern) {
+            super(grid, pattern);
+            words = (grid.cells() + 63) >>> 6;
+            visited = new long[(totalMoves + 1) * words];
+        }
+
+        @Override
+        protected void setRoot(int[] prefix, int length) {
+            int row = (length - 1) * words;
+            for (int w = 0; w < words; w++) {
+                visited[row + w] = 0;
+            }
+            for (int i = 0; i < length; i++) {
+                visited[row + (prefix[i] >>> 6)] |= 1L << prefix[i];
+            }
+        }
+
+        @Override
+        protected boolean isVisited(int depth, int cell) {
+            return (visited[depth * words + (cell >>> 6)] & (1L << cell)) != 0;
+        }
+
+        @Override
+        protected void visit(int depth, int cell) {
+            System.arraycopy(visited, depth * words, visited, (depth + 1) * words, words);
+            visited[(depth + 1) * words + (cell >>> 6)] |= 1L << cell;
+        }
+    }
+}
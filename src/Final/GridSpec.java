@@ -0,0 +1,82 @@
+package Final;
+
+/**
+ * Grid dimensions plus start and end cells of a path problem. Cells are numbered row * cols + col.
+ * A pattern for the grid has cells() - 1 moves, one per cell after the start.
+ */
+public final class GridSpec {
+    private final int rows, cols;
+    private final int start, end;
+
+    public GridSpec(int rows, int cols, int startRow, int startCol, int endRow, int endCol) {
+        if (rows < 1 || cols < 1 || rows * cols < 2) {
+            throw new IllegalArgumentException("Grid must have at least two cells");
+        }
+        if (!inside(rows, cols, startRow, startCol) || !inside(rows, cols, endRow, endCol)) {
+            throw new IllegalArgumentException("Start and end must be inside the grid");
+        }
+        this.rows = rows;
+        this.cols = cols;
+        this.start = startRow * cols + startCol;
+        this.end = endRow * cols + endCol;
+        if (start == end) {
+            throw new IllegalArgumentException("Start and end must be different cells");
+        }
+    }
+
+    // The puzzle's own layout: start top-left, end bottom-left
+    public static GridSpec standard(int rows, int cols) {
+        return new GridSpec(rows, cols, 0, 0, rows - 1, 0);
+    }
+
+    private static boolean inside(int rows, int cols, int row, int col) {
+        return row >= 0 && row < rows && col >= 0 && col < cols;
+    }
+
+    public int rows() {
+        return rows;
+    }
+
+    public int cols() {
+        return cols;
+    }
+
+    public int cells() {
+        return rows * cols;
+    }
+
+    public int totalMoves() {
+        return rows * cols - 1;
+    }
+
+    public int start() {
+        return start;
+    }
+
+    public int end() {
+        return end;
+    }
+
+    public boolean isStandard8x8() {
+        return rows == 8 && cols == 8 && start == 0 && end == 7 * 8;
+    }
+
+    /**
+     * Checkerboard parity: a path through every cell alternates colours, so with an even number of
+     * cells the ends differ in colour and with an odd number both ends are on the majority colour.
+     */
+    public boolean parityAllowsPath() {
+        int startColour = (start / cols + start % cols) & 1;
+        int endColour = (end / cols + end % cols) & 1;
+        if (cells() % 2 == 0) {
+            return startColour != endColour;
+        }
+        return startColour == 0 && endColour == 0;
+    }
+
+    @Override
+    public String toString() {
+        return rows + "x" + cols + " from (" + start / cols + "," + start % cols + ") to ("
+                + end / cols + "," + end % cols + ")";
+    }
+}
@@ -0,0 +1,54 @@
+package Final;
+
+import java.util.function.LongSupplier;
+import java.util.function.ToLongFunction;
+
+/**
+ * Runs the search kernels sequentially over the standard pattern set and reports nodes per second:
+ * the bitboard move generator of SearchKernel against the direction-cursor baseline it replaced.
+ * Both variants run in every round of the same JVM, alternating which goes first.
+ */
+public class KernelBenchmark {
+    public static void main(String[] args) {
+        int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 3;
+        SearchKernel kernel = new SearchKernel();
+        CursorKernel baseline = new CursorKernel();
+
+        for (int round = 1; round <= rounds; round++) {
+            long[] bitboard = null;
+            long[] cursor = null;
+            for (int run = 0; run < 2; run++) {
+                if ((run + round) % 2 == 0) {
+                    bitboard = measure(kernel::nodes, pattern -> kernel.count(pattern, null, 0, 0, 1L));
+                } else {
+                    cursor = measure(baseline::nodes, pattern -> baseline.count(pattern, 0, 0, 1L));
+                }
+            }
+            System.out.printf("Round %d: baseline %,d nodes in %,d ms, %,d nodes/s; bitboard %,d nodes in %,d ms,"
+                            + " %,d nodes/s; %.2fx%n", round,
+                    cursor[0], cursor[1] / 1_000_000, cursor[0] * 1_000_000_000L / cursor[1],
+                    bitboard[0], bitboard[1] / 1_000_000, bitboard[0] * 1_000_000_000L / bitboard[1],
+                    (double) cursor[1] / bitboard[1]);
+        }
+    }
+
+    // Counts every corpus pattern once: {nodes, nanos}
+    private static long[] measure(LongSupplier nodes, ToLongFunction<CompiledPattern> counter) {
+        long totalNodes = 0;
+        long totalNanos = 0;
+        for (int i = 0; i < PatternCorpus.PATTERNS.length; i++) {
+            CompiledPattern pattern = CompiledPattern.compile(PatternCorpus.PATTERNS[i]);
+            long nodesBefore = nodes.getAsLong();
+            long start = System.nanoTime();
+            long paths = pattern.canMatch() ? counter.applyAsLong(pattern) : 0;
+            long nanos = System.nanoTime() - start;
+
+            if (paths != PatternCorpus.EXPECTED_COUNTS[i]) {
+                throw new IllegalStateException("Wrong count for " + pattern.path() + ": " + paths);
+            }
+            totalNodes += nodes.getAsLong() - nodesBefore;
+            totalNanos += nanos;
+        }
+        return new long[]{totalNodes, totalNanos};
+    }
+}
@@ -0,0 +1,30 @@
+package Final;
+
+/**
+ * Leaf kernel that evaluates sibling states in lanes, selected for Final.TotalPath with
+ * -Dtotalpath.kernel=vector. The only implementation, VectorKernel, needs the incubator Vector API
+ * and is compiled from src-vector, so it is loaded by name.
+ */
+public interface LaneKernel {
+    /**
+     * Counts the paths of the subtree rooted at pos after moveIndex moves.
+     */
+    long count(CompiledPattern pattern, int pos, int moveIndex, long visited);
+
+    // States entered since the kernel was created, the same measure as SearchKernel.nodes()
+    long nodes();
+
+    /**
+     * A new VectorKernel for the calling thread.
+     *
+     * @throws IllegalStateException if the class or the jdk.incubator.vector module is missing
+     */
+    static LaneKernel create() {
+        try {
+            return (LaneKernel) Class.forName("Final.VectorKernel").getConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            throw new IllegalStateException("-Dtotalpath.kernel=vector needs the classes of src-vector on the "
+                    + "class path and --add-modules jdk.incubator.vector", e);
+        }
+    }
+}
@@ -0,0 +1,244 @@
+package Final;
+
+import java.util.Scanner;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Meet-in-the-middle path counter.
+ * The forward half walks pattern[0..31] from (0,0), the backward half walks the reversed and
+ * direction-flipped pattern[32..62] from (7,0). Both halves stop on the same midpoint cell, so a
+ * full path is a forward state and a backward state that share that cell and whose visited masks
+ * together cover the grid exactly once. Each half only has to explore roughly the square root of
+ * the full search tree.
+ */
+public class MeetInTheMiddle {
+    // Constants for grid dimensions
+    private static final int GRID_SIZE = 8;
+    private static final int TOTAL_MOVES = 63;
+    private static final int START_POS = 0;
+    private static final int END_POS = (GRID_SIZE - 1) * GRID_SIZE;
+
+    // Moves [0, MIDPOINT) belong to the forward half, [MIDPOINT, TOTAL_MOVES) to the backward half
+    private static final int MIDPOINT = 32;
+
+    // Half-path tasks are forked for the first SPLIT_DEPTH moves of each half
+    private static final int SPLIT_DEPTH = 6;
+
+    // Slots of the forward table joined by a single task
+    private static final int JOIN_CHUNK = 1 << 14;
+
+    // Possible movement directions
+    private static final int[] DX = {1, -1, 0, 0};  // Down, Up, Right, Left
+    private static final int[] DY = {0, 0, 1, -1};
+    private static final int WILDCARD = -1;
+
+    /**
+     * Enumerates every half-path of the given moves and collects the end states with multiplicity.
+     */
+    private static class HalfExplorer extends RecursiveTask<StateTable> {
+        private final int pos, moveIndex;
+        private final long visited;
+        private final byte[] moves;
+        private final long forbidden;  // The other half's endpoint, only reachable by the other half
+
+        HalfExplorer(int pos, int moveIndex, long visited, byte[] moves, long forbidden) {
+            this.pos = pos;
+            this.moveIndex = moveIndex;
+            this.visited = visited;
+            this.moves = moves;
+            this.forbidden = forbidden;
+        }
+
+        @Override
+        protected StateTable compute() {
+            if (!Bitboard.canComplete(visited, pos, Long.numberOfTrailingZeros(forbidden))) {
+                return new StateTable();
+            }
+            if (moveIndex >= SPLIT_DEPTH || moveIndex == moves.length) {
+                StateTable table = new StateTable();
+                walk(pos, moveIndex, visited, moves, forbidden, table);
+                return table;
+            }
+
+            HalfExplorer[] subtasks = new HalfExplorer[4];
+            int count = 0;
+            int move = moves[moveIndex];
+            for (int dir = 0; dir < 4; dir++) {
+                if (move != WILDCARD && move != dir) continue;
+                int next = step(pos, dir);
+                if (next < 0) continue;
+                long bitMask = 1L << next;
+                if (((visited | forbidden) & bitMask) != 0) continue;
+                subtasks[count++] = new HalfExplorer(next, moveIndex + 1, visited | bitMask, moves, forbidden);
+            }
+
+            if (count == 0) {
+                return new StateTable();
+            }
+            for (int i = 1; i < count; i++) {
+                subtasks[i].fork();
+            }
+            StateTable result = subtasks[0].compute();
+            for (int i = 1; i < count; i++) {
+                result = StateTable.merge(result, subtasks[i].join());
+            }
+            return result;
+        }
+    }
+
+    private static void walk(int pos, int moveIndex, long visited, byte[] moves, long forbidden, StateTable table) {
+        // The other half has to cover every unvisited cell on its way to the forbidden endpoint
+        if (!Bitboard.canComplete(visited, pos, Long.numberOfTrailingZeros(forbidden))) {
+            return;
+        }
+        if (moveIndex == moves.length) {
+            table.add(pos, visited, 1);
+            return;
+        }
+
+        int move = moves[moveIndex];
+        for (int dir = 0; dir < 4; dir++) {
+            if (move != WILDCARD && move != dir) continue;
+            int next = step(pos, dir);
+            if (next < 0) continue;
+            long bitMask = 1L << next;
+            if (((visited | forbidden) & bitMask) != 0) continue;
+            walk(next, moveIndex + 1, visited | bitMask, moves, forbidden, table);
+        }
+    }
+
+    /**
+     * Hash join of the two halves over a slot range of the forward table.
+     */
+    private static class JoinTask extends RecursiveTask<Long> {
+        private final StateTable forward, backward;
+        private final int from, to;
+
+        JoinTask(StateTable forward, StateTable backward, int from, int to) {
+            this.forward = forward;
+            this.backward = backward;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Long compute() {
+            if (to - from > JOIN_CHUNK) {
+                int mid = (from + to) >>> 1;
+                JoinTask right = new JoinTask(forward, backward, mid, to);
+                right.fork();
+                long left = new JoinTask(forward, backward, from, mid).compute();
+                return left + right.join();
+            }
+
+            long total = 0;
+            for (int slot = from; slot < to; slot++) {
+                if (!forward.isOccupied(slot)) continue;
+                int mid = forward.positionAt(slot);
+                // The backward half must cover exactly the unvisited cells plus the shared midpoint
+                long complement = ~forward.visitedAt(slot) | (1L << mid);
+                long matches = backward.get(mid, complement);
+                if (matches != 0) {
+                    total += forward.countAt(slot) * matches;
+                }
+            }
+            return total;
+        }
+    }
+
+    /**
+     * Runs both halves in parallel, then joins them on the shared midpoint cell.
+     */
+    private static class MeetTask extends RecursiveTask<Long> {
+        private final HalfExplorer forward, backward;
+
+        MeetTask(HalfExplorer forward, HalfExplorer backward) {
+            this.forward = forward;
+            this.backward = backward;
+        }
+
+        @Override
+        protected Long compute() {
+            invokeAll(forward, backward);
+            StateTable forwardStates = forward.join();
+            StateTable backwardStates = backward.join();
+            return new JoinTask(forwardStates, backwardStates, 0, forwardStates.capacity()).compute();
+        }
+    }
+
+    /**
+     * Counts the paths matching the pattern using the given pool.
+     */
+    public static long countPaths(String path, ForkJoinPool pool) {
+        byte[] forwardMoves = new byte[MIDPOINT];
+        for (int i = 0; i < MIDPOINT; i++) {
+            forwardMoves[i] = (byte) getDirectionIndex(path.charAt(i));
+        }
+
+        // Walking a move backwards means taking the opposite direction
+        byte[] backwardMoves = new byte[TOTAL_MOVES - MIDPOINT];
+        for (int i = 0; i < backwardMoves.length; i++) {
+            int dir = getDirectionIndex(path.charAt(TOTAL_MOVES - 1 - i));
+            backwardMoves[i] = (byte) (dir == WILDCARD ? WILDCARD : dir ^ 1);
+        }
+
+        HalfExplorer forward = new HalfExplorer(START_POS, 0, 1L << START_POS, forwardMoves, 1L << END_POS);
+        HalfExplorer backward = new HalfExplorer(END_POS, 0, 1L << END_POS, backwardMoves, 1L << START_POS);
+        return pool.invoke(new MeetTask(forward, backward));
+    }
+
+    // Position after moving from pos in direction dir, -1 when leaving the grid
+    private static int step(int pos, int dir) {
+        int newX = pos / GRID_SIZE + DX[dir];
+        int newY = pos % GRID_SIZE + DY[dir];
+        return isValid(newX, newY) ? newX * GRID_SIZE + newY : -1;
+    }
+
+    private static boolean isValid(int x, int y) {
+        return x >= 0 && x < GRID_SIZE && y >= 0 && y < GRID_SIZE;
+    }
+
+    private static int getDirectionIndex(char direction) {
+        return switch (direction) {
+            case 'D' -> 0;
+            case 'U' -> 1;
+            case 'R' -> 2;
+            case 'L' -> 3;
+            default -> WILDCARD;
+        };
+    }
+
+    private static boolean isValidInput(String path) {
+        if (path.length() != TOTAL_MOVES) {
+            return false;
+        }
+        return path.matches("[UDLR*]+");
+    }
+
+    public static void main(String[] args) {
+        Scanner scanner = new Scanner(System.in);
+        System.out.print("Input:\n");
+        String path = scanner.nextLine();
+
+        if (!isValidInput(path)) {
+            System.out.println("Invalid input. Path must be " + TOTAL_MOVES +
+                    " characters long and contain only U, D, L, R, or *");
+            return;
+        }
+
+        int processors = Runtime.getRuntime().availableProcessors();
+        System.out.println("\nUsing " + processors + " processor threads");
+        System.out.println("Starting meet-in-the-middle path exploration...\n");
+
+        long startTime = System.currentTimeMillis();
+        long totalPaths = countPaths(path, ForkJoinPool.commonPool());
+        long totalTime = System.currentTimeMillis() - startTime;
+
+        System.out.println("Final Results:");
+        System.out.println("Total paths: " + totalPaths);
+        System.out.println("Time (ms): " + totalTime);
+
+        scanner.close();
+    }
+}
@@ -0,0 +1,58 @@
+package Final;
+
+/**
+ * Bitboard move generation shared by the engines.
+ * The candidate cells of a move are computed in one expression,
+ * NEIGHBORS[pos] & ~visited & DIRECTION_MASKS[move][pos], and iterated with numberOfTrailingZeros.
+ * Move codes are the CompiledPattern ones: 0-3 for D, U, R, L and 4 for the wildcard.
+ */
+public final class MoveGenerator {
+    private static final int GRID_SIZE = 8;
+    private static final int CELLS = GRID_SIZE * GRID_SIZE;
+
+    // Possible movement directions
+    private static final int[] DX = {1, -1, 0, 0};  // Down, Up, Right, Left
+    private static final int[] DY = {0, 0, 1, -1};
+
+    // All cells adjacent to pos
+    public static final long[] NEIGHBORS = new long[CELLS];
+
+    // DIRECTION_MASKS[move][pos]: the cells a move may reach from pos, ignoring visited cells
+    public static final long[][] DIRECTION_MASKS = new long[5][CELLS];
+
+    static {
+        for (int x = 0; x < GRID_SIZE; x++) {
+            for (int y = 0; y < GRID_SIZE; y++) {
+                int pos = x * GRID_SIZE + y;
+                for (int dir = 0; dir < 4; dir++) {
+                    int newX = x + DX[dir];
+                    int newY = y + DY[dir];
+                    if (newX >= 0 && newX < GRID_SIZE && newY >= 0 && newY < GRID_SIZE) {
+                        long bit = 1L << (newX * GRID_SIZE + newY);
+                        NEIGHBORS[pos] |= bit;
+                        DIRECTION_MASKS[dir][pos] = bit;
+                    }
+                }
+                DIRECTION_MASKS[CompiledPattern.WILDCARD][pos] = NEIGHBORS[pos];
+            }
+        }
+    }
+
+    private MoveGenerator() {
+    }
+
+    /**
+     * Unvisited cells reachable from pos with the given move code.
+     */
+    public static long candidates(int pos, long visited, int move) {
+        return NEIGHBORS[pos] & ~visited & DIRECTION_MASKS[move][pos];
+    }
+
+    /**
+     * Candidates of move moveIndex of the pattern, restricted to the cells feasible after it.
+     */
+    public static long candidates(CompiledPattern pattern, int moveIndex, int pos, long visited) {
+        return NEIGHBORS[pos] & ~visited & DIRECTION_MASKS[pattern.moves[moveIndex]][pos]
+                & pattern.feasible[moveIndex + 1];
+    }
+}
@@ -0,0 +1,213 @@
+package Final;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded, concurrent cache of final path counts keyed on the canonical form of a pattern.
+ *
+ * Reflecting the grid top to bottom swaps (0,0) and (7,0); walking the reflected path backwards
+ * gives a path from (0,0) to (7,0) again. In the pattern this is the reversed string with U/D
+ * flipped twice (once by the reflection, once by the reversal) and L/R flipped once, so a pattern
+ * and its reversed L/R-swapped mirror always have the same count. The key is the smaller of the two.
+ *
+ * Reads are lock-free. Every access bumps the key in a small count-min frequency sketch that is
+ * halved periodically so old popularity fades. When the cache is full, a few resident entries are
+ * sampled and the least frequent one is the eviction victim; the new entry is only admitted if it is
+ * used more often than that victim (TinyLFU admission), so one-off patterns cannot flush hot ones.
+ */
+public final class PatternCache {
+    private static final int SAMPLE_SIZE = 8;      // Resident entries compared per eviction
+    private static final int SKETCH_ROWS = 4;
+
+    private final int capacity;
+    private final ConcurrentHashMap<String, Entry> entries;
+    private final String[] slots;                  // Resident keys, for sampling eviction victims
+    private int used = 0;
+
+    // Count-min sketch of access frequencies
+    private final int[][] sketch;
+    private final int sketchMask;
+    private final int resetAfter;
+    private final LongAdder accesses = new LongAdder();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder rejections = new LongAdder();
+
+    private record Entry(long count, int slot) {
+    }
+
+    public PatternCache(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        this.capacity = capacity;
+        this.entries = new ConcurrentHashMap<>(capacity * 2);
+        this.slots = new String[capacity];
+
+        int width = Integer.highestOneBit(Math.max(64, capacity * 4) - 1) << 1;
+        this.sketch = new int[SKETCH_ROWS][width];
+        this.sketchMask = width - 1;
+        this.resetAfter = 10 * Math.max(64, capacity);
+    }
+
+    /**
+     * Cached count of the pattern or of its mirror, -1 on a miss.
+     */
+    public long get(String pattern) {
+        String key = canonical(pattern);
+        recordAccess(key);
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            misses.increment();
+            return -1;
+        }
+        hits.increment();
+        return entry.count();
+    }
+
+    /**
+     * Stores the count of a pattern, evicting a less frequently used entry when the cache is full.
+     */
+    public synchronized void put(String pattern, long count) {
+        String key = canonical(pattern);
+        Entry existing = entries.get(key);
+        if (existing != null) {
+            entries.put(key, new Entry(count, existing.slot()));
+            return;
+        }
+
+        int slot;
+        if (used < capacity) {
+            slot = used++;
+        } else {
+            slot = sampleVictim();
+            String victim = slots[slot];
+            if (frequency(key) <= frequency(victim)) {
+                rejections.increment();
+                return;
+            }
+            entries.remove(victim);
+            evictions.increment();
+        }
+        slots[slot] = key;
+        entries.put(key, new Entry(count, slot));
+    }
+
+    // Slot of the least frequently used of SAMPLE_SIZE random resident entries
+    private int sampleVictim() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int victim = random.nextInt(capacity);
+        int victimFrequency = frequency(slots[victim]);
+        for (int i = 1; i < SAMPLE_SIZE; i++) {
+            int slot = random.nextInt(capacity);
+            int slotFrequency = frequency(slots[slot]);
+            if (slotFrequency < victimFrequency) {
+                victim = slot;
+                victimFrequency = slotFrequency;
+            }
+        }
+        return victim;
+    }
+
+    // Counters are updated without synchronization, a lost increment only blurs the estimate
+    private void recordAccess(String key) {
+        int hash = spread(key.hashCode());
+        for (int row = 0; row < SKETCH_ROWS; row++) {
+            int index = indexOf(hash, row);
+            if (sketch[row][index] < Integer.MAX_VALUE) {
+                sketch[row][index]++;
+            }
+        }
+        accesses.increment();
+        if (accesses.sum() >= resetAfter) {
+            age();
+        }
+    }
+
+    private int frequency(String key) {
+        int hash = spread(key.hashCode());
+        int min = Integer.MAX_VALUE;
+        for (int row = 0; row < SKETCH_ROWS; row++) {
+            min = Math.min(min, sketch[row][indexOf(hash, row)]);
+        }
+        return min;
+    }
+
+    // Halves every counter so the sketch follows recent popularity
+    private synchronized void age() {
+        if (accesses.sum() < resetAfter) {
+            return;
+        }
+        for (int[] row : sketch) {
+            for (int i = 0; i < row.length; i++) {
+                row[i] >>>= 1;
+            }
+        }
+        accesses.reset();
+    }
+
+    private int indexOf(int hash, int row) {
+        int h = hash * (0x9E3779B9 + 2 * row + 1);
+        return (h ^ (h >>> 15)) & sketchMask;
+    }
+
+    private static int spread(int hash) {
+        hash *= 0x85EBCA6B;
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * The pattern of the top-to-bottom reflected path walked backwards: reversed, L and R swapped.
+     */
+    public static String mirror(String pattern) {
+        char[] moves = new char[pattern.length()];
+        for (int i = 0; i < moves.length; i++) {
+            char move = pattern.charAt(pattern.length() - 1 - i);
+            moves[i] = switch (move) {
+                case 'L' -> 'R';
+                case 'R' -> 'L';
+                default -> move;
+            };
+        }
+        return new String(moves);
+    }
+
+    // The lexicographically smaller of a pattern and its mirror
+    public static String canonical(String pattern) {
+        String mirrored = mirror(pattern);
+        return mirrored.compareTo(pattern) < 0 ? mirrored : pattern;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+
+    public long evictions() {
+        return evictions.sum();
+    }
+
+    // New entries turned away because they were used less than the eviction victim
+    public long rejections() {
+        return rejections.sum();
+    }
+
+    public String stats() {
+        long lookups = hits() + misses();
+        return String.format("Pattern cache: %,d/%,d entries, %,d hits, %,d misses (%.1f%% hit rate), " +
+                        "%,d evictions, %,d rejected",
+                size(), capacity, hits(), misses(), lookups > 0 ? hits() * 100.0 / lookups : 0.0,
+                evictions(), rejections());
+    }
+}
@@ -0,0 +1,31 @@
+package Final;
+
+/**
+ * Standard patterns with known path counts, used by the benchmarks and to cross-check engines.
+ */
+public final class PatternCorpus {
+    public static final String[] PATTERNS = {
+            "*****DR******R******R********************R*D************L******",
+            "DDDDDDRUUUUUURDDDDDDRUUUUUURDDDDDDRUUUUUURRDLDRDLDRDLDRDLLLLLLL",
+            "*********************R****************L*********************D**",
+            "DDDDDDDDDDDDDDDDDDDDDDDDDDDDDDDDDDDDDDDDDDDDDDDDDDDDDDDDDDDDDDD",
+            "DDDDDDRUUUUUURDDDDDD********DDDDDDRUUUUUURRDLDRDLDRDLDRDLLLLLLL",
+            "DDDDDDRUUUUUURDDDDDD*******************************************",
+    };
+
+    public static final long[] EXPECTED_COUNTS = {
+            5_739,
+            1,
+            191_651,
+            0,
+            1,
+            1_696,
+    };
+
+    // Answered by the profile DP only, far too large for backtracking
+    public static final String ALL_WILDCARDS = "***************************************************************";
+    public static final long ALL_WILDCARDS_COUNT = 8_934_966;
+
+    private PatternCorpus() {
+    }
+}
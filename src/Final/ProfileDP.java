@@ -0,0 +1,454 @@
+package Final;
+
+import java.util.Scanner;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Connectivity-profile (plug) DP counting Hamiltonian paths between two fixed cells of a grid
+ * with blocked cells. This answers an all-'*' pattern, or the all-'*' tail of a pattern, without
+ * enumerating paths: the grid is swept cell by cell in row-major order and each state records
+ * how the partial path fragments cross the boundary between processed and unprocessed cells.
+ *
+ * Plug labels, 2 bits each, one plug per column plus the plug left of the current cell:
+ * 0 = no edge, 1 / 2 = left / right end of a fragment whose both ends are still open,
+ * 3 = open end of a fragment whose other end is one of the two path endpoints.
+ */
+public class ProfileDP {
+    // Constants for the 8x8 pattern problem
+    private static final int GRID_SIZE = 8;
+    private static final int TOTAL_MOVES = 63;
+    private static final int END_POS = (GRID_SIZE - 1) * GRID_SIZE;
+
+    // Wildcard tails at least this long are answered by the DP instead of backtracking
+    public static final int MIN_WILDCARD_TAIL = 24;
+    // The prefix before the tail is expanded into merged states first; pruned, an all-'*' prefix peaks at
+    // about 515k states near move 28, prefixes with more wildcards than this are left to the search
+    public static final int MAX_PREFIX_WILDCARDS = 32;
+
+    // Prefix states handed to a single DP worker
+    private static final int STATES_PER_TASK = 64;
+
+    // Possible movement directions
+    private static final int[] DX = {1, -1, 0, 0};  // Down, Up, Right, Left
+    private static final int[] DY = {0, 0, 1, -1};
+
+    private static final ThreadLocal<ProfileDP> WORKERS =
+            ThreadLocal.withInitial(() -> new ProfileDP(GRID_SIZE, GRID_SIZE));
+
+    private final int rows, cols;
+    private final int stateMask;
+
+    // Dense count arrays indexed by profile, plus the list of profiles touched in each layer
+    private long[] counts, nextCounts;
+    private int[] touched, nextTouched;
+    private int touchedSize, nextTouchedSize;
+
+    public ProfileDP(int rows, int cols) {
+        if (rows * cols > 64 || cols > 14) {
+            throw new IllegalArgumentException("Grid too large: " + rows + "x" + cols);
+        }
+        this.rows = rows;
+        this.cols = cols;
+        int profiles = 1 << (2 * (cols + 1));
+        this.stateMask = profiles - 1;
+        this.counts = new long[profiles];
+        this.nextCounts = new long[profiles];
+        this.touched = new int[profiles];
+        this.nextTouched = new int[profiles];
+    }
+
+    /**
+     * Counts paths from start to end that visit every cell not in blocked exactly once.
+     * Cells are numbered row * cols + col.
+     */
+    public long countHamiltonianPaths(long blocked, int start, int end) {
+        if (((blocked >>> start) & 1) != 0 || ((blocked >>> end) & 1) != 0) {
+            return 0;
+        }
+        int cells = rows * cols;
+        int lastFree = -1;
+        for (int cell = 0; cell < cells; cell++) {
+            if (((blocked >>> cell) & 1) == 0) {
+                lastFree = cell;
+            }
+        }
+        if (start == end) {
+            return Long.bitCount(~blocked & fullMask()) == 1 ? 1 : 0;
+        }
+
+        touchedSize = 0;
+        put(0, 1);
+        swapLayers();
+
+        long total = 0;
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < cols; c++) {
+                int cell = r * cols + c;
+                boolean isBlocked = ((blocked >>> cell) & 1) != 0;
+                boolean isEndpoint = cell == start || cell == end;
+                boolean canRight = c + 1 < cols && ((blocked >>> (cell + 1)) & 1) == 0;
+                boolean canDown = r + 1 < rows && ((blocked >>> (cell + cols)) & 1) == 0;
+                boolean isLast = cell == lastFree;
+
+                for (int i = 0; i < touchedSize; i++) {
+                    int state = touched[i];
+                    long ways = counts[state];
+                    counts[state] = 0;
+
+                    int left = plug(state, c);
+                    int up = plug(state, c + 1);
+                    int base = withPlugs(state, c, 0, 0);
+
+                    if (isBlocked) {
+                        if (left == 0 && up == 0) {
+                            put(base, ways);
+                        }
+                    } else if (isEndpoint) {
+                        total += endpointCell(base, left, up, ways, canDown, canRight, isLast, c);
+                    } else {
+                        total += innerCell(base, left, up, ways, canDown, canRight, isLast, c);
+                    }
+                }
+
+                // At the end of a row the down plugs become the next row's up plugs
+                if (c == cols - 1) {
+                    shiftLayer();
+                }
+                swapLayers();
+            }
+        }
+
+        for (int i = 0; i < touchedSize; i++) {
+            counts[touched[i]] = 0;
+        }
+        touchedSize = 0;
+        return total;
+    }
+
+    // Transitions for a cell of degree 2, returns the number of paths completed at this cell
+    private long innerCell(int base, int left, int up, long ways,
+                           boolean canDown, boolean canRight, boolean isLast, int c) {
+        if (left == 0 && up == 0) {
+            // Open a new fragment going down and right
+            if (canDown && canRight) {
+                put(withPlugs(base, c, 1, 2), ways);
+            }
+            return 0;
+        }
+        if (left == 0 || up == 0) {
+            // Extend the incoming fragment down or right
+            int label = left | up;
+            if (canDown) {
+                put(withPlugs(base, c, label, 0), ways);
+            }
+            if (canRight) {
+                put(withPlugs(base, c, 0, label), ways);
+            }
+            return 0;
+        }
+
+        // Both plugs present: join the two fragments at this cell
+        if (left == 3 && up == 3) {
+            return (base == 0 && isLast) ? ways : 0;
+        }
+        if (left == 1 && up == 2) {
+            return 0;  // Would close a cycle
+        }
+        int state = base;
+        if (left == 1 && up == 1) {
+            state = setPlug(state, matchRight(state, c + 1), 1);
+        } else if (left == 2 && up == 2) {
+            state = setPlug(state, matchLeft(state, c), 2);
+        } else if (left == 3) {
+            state = setPlug(state, up == 1 ? matchRight(state, c + 1) : matchLeft(state, c + 1), 3);
+        } else if (up == 3) {
+            state = setPlug(state, left == 1 ? matchRight(state, c) : matchLeft(state, c), 3);
+        }
+        // left == 2 && up == 1 simply joins two neighbouring fragments
+        put(state, ways);
+        return 0;
+    }
+
+    // Transitions for one of the two path endpoints, which has degree 1
+    private long endpointCell(int base, int left, int up, long ways,
+                              boolean canDown, boolean canRight, boolean isLast, int c) {
+        if (left == 0 && up == 0) {
+            if (canDown) {
+                put(withPlugs(base, c, 3, 0), ways);
+            }
+            if (canRight) {
+                put(withPlugs(base, c, 0, 3), ways);
+            }
+            return 0;
+        }
+        if (left != 0 && up != 0) {
+            return 0;
+        }
+
+        int label = left | up;
+        int index = left != 0 ? c : c + 1;
+        if (label == 3) {
+            return (base == 0 && isLast) ? ways : 0;
+        }
+        int partner = label == 1 ? matchRight(base, index) : matchLeft(base, index);
+        put(setPlug(base, partner, 3), ways);
+        return 0;
+    }
+
+    // Index of the right bracket matching the left bracket at index
+    private int matchRight(int state, int index) {
+        int depth = 1;
+        for (int i = index + 1; i <= cols; i++) {
+            int p = plug(state, i);
+            if (p == 1) depth++;
+            else if (p == 2 && --depth == 0) return i;
+        }
+        throw new IllegalStateException("Unbalanced profile");
+    }
+
+    // Index of the left bracket matching the right bracket at index
+    private int matchLeft(int state, int index) {
+        int depth = 1;
+        for (int i = index - 1; i >= 0; i--) {
+            int p = plug(state, i);
+            if (p == 2) depth++;
+            else if (p == 1 && --depth == 0) return i;
+        }
+        throw new IllegalStateException("Unbalanced profile");
+    }
+
+    private static int plug(int state, int index) {
+        return (state >>> (2 * index)) & 3;
+    }
+
+    private static int setPlug(int state, int index, int value) {
+        return (state & ~(3 << (2 * index))) | (value << (2 * index));
+    }
+
+    // Sets the down plug (index c) and the right plug (index c + 1) of the current cell
+    private static int withPlugs(int state, int c, int down, int right) {
+        return setPlug(setPlug(state, c, down), c + 1, right);
+    }
+
+    private void put(int state, long ways) {
+        if (nextCounts[state] == 0) {
+            nextTouched[nextTouchedSize++] = state;
+        }
+        nextCounts[state] += ways;
+    }
+
+    private void swapLayers() {
+        long[] tmpCounts = counts;
+        counts = nextCounts;
+        nextCounts = tmpCounts;
+        int[] tmpTouched = touched;
+        touched = nextTouched;
+        nextTouched = tmpTouched;
+        touchedSize = nextTouchedSize;
+        nextTouchedSize = 0;
+    }
+
+    // Moves every profile in the next layer one plug to the right, the right border plug is always 0.
+    // The current layer is already drained, so it serves as the target and the layers are swapped back.
+    private void shiftLayer() {
+        touchedSize = 0;
+        for (int i = 0; i < nextTouchedSize; i++) {
+            int state = nextTouched[i];
+            long ways = nextCounts[state];
+            nextCounts[state] = 0;
+            int shifted = (state << 2) & stateMask;
+            if (counts[shifted] == 0) {
+                touched[touchedSize++] = shifted;
+            }
+            counts[shifted] += ways;
+        }
+        nextTouchedSize = touchedSize;
+        touchedSize = 0;
+        int[] tmpTouched = touched;
+        touched = nextTouched;
+        nextTouched = tmpTouched;
+        long[] tmpCounts = counts;
+        counts = nextCounts;
+        nextCounts = tmpCounts;
+    }
+
+    private long fullMask() {
+        int cells = rows * cols;
+        return cells == 64 ? -1L : (1L << cells) - 1;
+    }
+
+    /**
+     * Index of the first move of the all-'*' tail of the pattern, TOTAL_MOVES if it ends in a fixed move.
+     */
+    public static int wildcardTailStart(String path) {
+        int start = path.length();
+        while (start > 0 && path.charAt(start - 1) == '*') {
+            start--;
+        }
+        return start;
+    }
+
+    /**
+     * Whether the DP should answer the pattern: a wildcard tail of at least MIN_WILDCARD_TAIL moves
+     * behind a prefix of at most MAX_PREFIX_WILDCARDS wildcards. Every engine routes on this check.
+     */
+    public static boolean isSuitable(String path) {
+        int tailStart = wildcardTailStart(path);
+        if (path.length() - tailStart < MIN_WILDCARD_TAIL) {
+            return false;
+        }
+        int prefixWildcards = 0;
+        for (int i = 0; i < tailStart; i++) {
+            if (path.charAt(i) == '*') prefixWildcards++;
+        }
+        return prefixWildcards <= MAX_PREFIX_WILDCARDS;
+    }
+
+    /**
+     * Counts the paths matching an 8x8 pattern whose tail is all '*'. The prefix is expanded into
+     * merged (pos, visited) states with the same feasibility masks and canReachEnd pruning as the
+     * frontier search, and the DP counts the completions of every state.
+     */
+    public static long countPaths(String path, ForkJoinPool pool) {
+        CompiledPattern pattern = CompiledPattern.compile(path);
+        if (!pattern.canMatch()) {
+            return 0;
+        }
+        StateTable prefixStates = FrontierExpansion.expand(pattern, wildcardTailStart(path)).states();
+        if (prefixStates.size() == 0) {
+            return 0;
+        }
+        return pool.invoke(new TailTask(prefixStates, 0, prefixStates.capacity()));
+    }
+
+    /**
+     * Runs the DP for a slot range of the prefix states.
+     */
+    private static class TailTask extends RecursiveTask<Long> {
+        private final StateTable states;
+        private final int from, to;
+
+        TailTask(StateTable states, int from, int to) {
+            this.states = states;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Long compute() {
+            if (to - from > STATES_PER_TASK) {
+                int mid = (from + to) >>> 1;
+                TailTask right = new TailTask(states, mid, to);
+                right.fork();
+                long left = new TailTask(states, from, mid).compute();
+                return left + right.join();
+            }
+
+            ProfileDP dp = WORKERS.get();
+            long total = 0;
+            for (int slot = from; slot < to; slot++) {
+                if (!states.isOccupied(slot)) continue;
+                int pos = states.positionAt(slot);
+                if (pos == END_POS) {
+                    total += states.countAt(slot);  // The prefix already used every move
+                    continue;
+                }
+                long blocked = states.visitedAt(slot) & ~(1L << pos);
+                total += states.countAt(slot) * dp.countHamiltonianPaths(blocked, pos, END_POS);
+            }
+            return total;
+        }
+    }
+
+    // Plain backtracking over a small grid, used to validate the DP
+    private static long bruteForce(int rows, int cols, long visited, int pos, int end) {
+        if (pos == end) {
+            return Long.bitCount(visited) == rows * cols ? 1 : 0;
+        }
+        long total = 0;
+        for (int dir = 0; dir < 4; dir++) {
+            int newX = pos / cols + DX[dir];
+            int newY = pos % cols + DY[dir];
+            if (newX < 0 || newX >= rows || newY < 0 || newY >= cols) continue;
+            int next = newX * cols + newY;
+            if ((visited & (1L << next)) != 0) continue;
+            total += bruteForce(rows, cols, visited | (1L << next), next, end);
+        }
+        return total;
+    }
+
+    /**
+     * Compares the DP with backtracking on every start/end pair of small grids, with and without
+     * blocked cells. Returns the number of mismatches.
+     */
+    public static int verify() {
+        int mismatches = 0;
+        java.util.Random random = new java.util.Random(42);
+        for (int rows = 1; rows <= 5; rows++) {
+            for (int cols = 1; cols <= 5; cols++) {
+                ProfileDP dp = new ProfileDP(rows, cols);
+                int cells = rows * cols;
+                for (int trial = 0; trial < 4; trial++) {
+                    long blocked = 0;
+                    if (trial > 0) {
+                        for (int k = 0; k < trial; k++) {
+                            blocked |= 1L << random.nextInt(cells);
+                        }
+                    }
+                    for (int s = 0; s < cells; s++) {
+                        for (int t = 0; t < cells; t++) {
+                            if (s == t || ((blocked >>> s) & 1) != 0 || ((blocked >>> t) & 1) != 0) continue;
+                            long expected = bruteForce(rows, cols, blocked | (1L << s), s, t);
+                            long actual = dp.countHamiltonianPaths(blocked, s, t);
+                            if (expected != actual) {
+                                System.out.printf("Mismatch on %dx%d blocked=%x %d->%d: expected %d, got %d%n",
+                                        rows, cols, blocked, s, t, expected, actual);
+                                mismatches++;
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        return mismatches;
+    }
+
+    private static boolean isValidInput(String path) {
+        if (path.length() != TOTAL_MOVES) {
+            return false;
+        }
+        return path.matches("[UDLR*]+");
+    }
+
+    public static void main(String[] args) {
+        if (args.length > 0 && args[0].equals("--verify")) {
+            int mismatches = verify();
+            System.out.println(mismatches == 0 ? "Profile DP matches backtracking on all small grids"
+                    : mismatches + " mismatches");
+            return;
+        }
+
+        Scanner scanner = new Scanner(System.in);
+        System.out.print("Input:\n");
+        String path = scanner.nextLine();
+
+        if (!isValidInput(path)) {
+            System.out.println("Invalid input. Path must be " + TOTAL_MOVES +
+                    " characters long and contain only U, D, L, R, or *");
+            return;
+        }
+
+        System.out.println("Wildcard tail: " + (TOTAL_MOVES - wildcardTailStart(path)) + " moves\n");
+
+        long startTime = System.currentTimeMillis();
+        long totalPaths = countPaths(path, ForkJoinPool.commonPool());
+        long totalTime = System.currentTimeMillis() - startTime;
+
+        System.out.println("Final Results:");
+        System.out.println("Total paths: " + totalPaths);
+        System.out.println("Time (ms): " + totalTime);
+
+        scanner.close();
+    }
+}
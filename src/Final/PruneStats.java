@@ -0,0 +1,229 @@
+package Final;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Opt-in per-depth node and pruning counters, enabled with -Dtotalpath.stats=true; Final.TotalPath
+ * prints the table at the end and -Dtotalpath.stats.csv=<file> also exports it.
+ * Every worker thread records into its own Recorder, so the counters are plain long arrays that no
+ * other core writes; the recorders are only summed for the report. ENABLED is a static final
+ * constant, so with the flag off the JIT folds every "if (PruneStats.ENABLED)" branch away and the
+ * engines run exactly the uninstrumented code.
+ *
+ * The rules, in the order the engines apply them (README names in brackets):
+ * - FEASIBILITY: candidate cells removed by the pattern's feasibility masks
+ * - TRAPPED: nodes left without any candidate move (trapped position)
+ * - MANHATTAN: the end is farther than the moves left (Manhattan distance)
+ * - CELL_COUNT: more moves left than unvisited cells
+ * - DEAD_CELL: an unvisited cell lost the neighbours it needs (unreachable region)
+ * - CONNECTIVITY: the unvisited cells are split, so the end is cut off (path to end flood fill)
+ * Check times are sampled on one call in SAMPLE_INTERVAL and scaled up, timing every call would cost
+ * more than the checks themselves; the cost of a System.nanoTime pair is measured once and subtracted.
+ */
+public final class PruneStats {
+    private static final int GRID_SIZE = 8;
+    private static final int TOTAL_MOVES = 63;
+    private static final int END_POS = (GRID_SIZE - 1) * GRID_SIZE;
+    private static final int SAMPLE_INTERVAL = 64;
+
+    public static final boolean ENABLED = Boolean.getBoolean("totalpath.stats");
+
+    public static final int FEASIBILITY = 0;
+    public static final int TRAPPED = 1;
+    public static final int MANHATTAN = 2;
+    public static final int CELL_COUNT = 3;
+    public static final int DEAD_CELL = 4;
+    public static final int CONNECTIVITY = 5;
+    private static final String[] RULES = {"feasibility", "trapped", "manhattan", "cell count", "dead cell", "connectivity"};
+
+    // Nanoseconds a back-to-back pair of System.nanoTime calls reports, 0 when disabled
+    private static final long TIMER_OVERHEAD = ENABLED ? timerOverhead() : 0;
+
+    private static final Queue<Recorder> recorders = new ConcurrentLinkedQueue<>();
+    private static final ThreadLocal<Recorder> current = ThreadLocal.withInitial(() -> {
+        Recorder recorder = new Recorder();
+        recorders.add(recorder);
+        return recorder;
+    });
+
+    /**
+     * Counters of one thread, indexed by move index and rule.
+     */
+    private static final class Recorder {
+        final long[] nodes = new long[TOTAL_MOVES + 1];
+        final long[][] prunes = new long[RULES.length][TOTAL_MOVES + 1];
+        final long[] checks = new long[RULES.length];
+        final long[] sampledNanos = new long[RULES.length];
+        long calls;
+    }
+
+    private PruneStats() {
+    }
+
+    /**
+     * Records a node entered after moveIndex moves, with the candidate cells before and after the
+     * feasibility masks.
+     */
+    public static void node(int moveIndex, long unmasked, long candidates) {
+        Recorder recorder = current.get();
+        recorder.nodes[moveIndex]++;
+        recorder.checks[FEASIBILITY] += Long.bitCount(unmasked);
+        recorder.checks[TRAPPED]++;
+        recorder.prunes[FEASIBILITY][moveIndex] += Long.bitCount(unmasked) - Long.bitCount(candidates);
+        if (candidates == 0) {
+            recorder.prunes[TRAPPED][moveIndex]++;
+        }
+    }
+
+    // A complete path found at the last move
+    public static void leaf() {
+        current.get().nodes[TOTAL_MOVES]++;
+    }
+
+    /**
+     * SearchKernel.canReachEnd with every rule counted, and timed on sampled calls.
+     */
+    public static boolean canReachEnd(int pos, int movesLeft, long visited) {
+        Recorder recorder = current.get();
+        int moveIndex = TOTAL_MOVES - movesLeft;
+        boolean timed = recorder.calls++ % SAMPLE_INTERVAL == 0;
+
+        for (int rule = MANHATTAN; rule <= CONNECTIVITY; rule++) {
+            long start = timed ? System.nanoTime() : 0;
+            boolean pruned = switch (rule) {
+                case MANHATTAN -> Math.abs(pos / GRID_SIZE - (GRID_SIZE - 1)) + pos % GRID_SIZE > movesLeft;
+                case CELL_COUNT -> movesLeft > GRID_SIZE * GRID_SIZE - Long.bitCount(visited);
+                case DEAD_CELL -> Bitboard.hasDeadCell(visited, pos, END_POS);
+                default -> !Bitboard.isUnvisitedConnected(visited, pos);
+            };
+            if (timed) {
+                recorder.sampledNanos[rule] += Math.max(0, System.nanoTime() - start - TIMER_OVERHEAD);
+            }
+            recorder.checks[rule]++;
+            if (pruned) {
+                recorder.prunes[rule][moveIndex]++;
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static long timerOverhead() {
+        int samples = 100_000;
+        long best = Long.MAX_VALUE;
+        for (int round = 0; round < 5; round++) {
+            long total = 0;
+            for (int i = 0; i < samples; i++) {
+                long start = System.nanoTime();
+                total += System.nanoTime() - start;
+            }
+            best = Math.min(best, total / samples);
+        }
+        return best;
+    }
+
+    /**
+     * Sum of every thread's counters.
+     */
+    private static final class Totals {
+        final long[] nodes = new long[TOTAL_MOVES + 1];
+        final long[][] prunes = new long[RULES.length][TOTAL_MOVES + 1];
+        final long[] checks = new long[RULES.length];
+        final long[] sampledNanos = new long[RULES.length];
+
+        Totals() {
+            for (Recorder recorder : recorders) {
+                for (int depth = 0; depth <= TOTAL_MOVES; depth++) {
+                    nodes[depth] += recorder.nodes[depth];
+                    for (int rule = 0; rule < RULES.length; rule++) {
+                        prunes[rule][depth] += recorder.prunes[rule][depth];
+                    }
+                }
+                for (int rule = 0; rule < RULES.length; rule++) {
+                    checks[rule] += recorder.checks[rule];
+                    sampledNanos[rule] += recorder.sampledNanos[rule];
+                }
+            }
+        }
+    }
+
+    /**
+     * Names of the rules, indexed like ruleTotals.
+     */
+    public static String[] rules() {
+        return RULES.clone();
+    }
+
+    /**
+     * Checks and prunes of every rule over all threads so far, as {checks, prunes} per rule.
+     */
+    public static long[][] ruleTotals() {
+        Totals totals = new Totals();
+        long[][] result = new long[RULES.length][2];
+        for (int rule = 0; rule < RULES.length; rule++) {
+            result[rule][0] = totals.checks[rule];
+            for (long count : totals.prunes[rule]) {
+                result[rule][1] += count;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Per-depth table of nodes and prunes per rule, then the totals and estimated time of every rule.
+     */
+    public static String report() {
+        Totals totals = new Totals();
+        StringBuilder sb = new StringBuilder(String.format("%5s %14s", "Depth", "Nodes"));
+        for (String rule : RULES) {
+            sb.append(String.format(" %13s", rule));
+        }
+        for (int depth = 0; depth <= TOTAL_MOVES; depth++) {
+            sb.append(String.format("%n%5d %,14d", depth, totals.nodes[depth]));
+            for (int rule = 0; rule < RULES.length; rule++) {
+                sb.append(String.format(" %,13d", totals.prunes[rule][depth]));
+            }
+        }
+
+        sb.append(String.format("%n%n%-13s %16s %16s %8s %10s %9s", "Rule", "Checks", "Prunes", "Rate", "Est. ms", "ns/check"));
+        for (int rule = 0; rule < RULES.length; rule++) {
+            long pruned = 0;
+            for (long count : totals.prunes[rule]) pruned += count;
+            long checks = totals.checks[rule];
+            sb.append(String.format("%n%-13s %,16d %,16d %7.2f%%", RULES[rule], checks, pruned,
+                    checks > 0 ? pruned * 100.0 / checks : 0.0));
+            if (rule >= MANHATTAN) {
+                // The feasibility and trapped counts come for free with move generation and are not timed
+                long nanos = totals.sampledNanos[rule] * SAMPLE_INTERVAL;
+                sb.append(String.format(" %,10d %9.1f", nanos / 1_000_000, checks > 0 ? (double) nanos / checks : 0.0));
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Writes the per-depth table as CSV: depth, nodes, then one column of prunes per rule.
+     */
+    public static void exportCsv(Path file) throws IOException {
+        Totals totals = new Totals();
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(file))) {
+            out.print("depth,nodes");
+            for (String rule : RULES) {
+                out.print("," + rule.replace(' ', '_'));
+            }
+            out.println();
+            for (int depth = 0; depth <= TOTAL_MOVES; depth++) {
+                out.print(depth + "," + totals.nodes[depth]);
+                for (int rule = 0; rule < RULES.length; rule++) {
+                    out.print("," + totals.prunes[rule][depth]);
+                }
+                out.println();
+            }
+        }
+    }
+}
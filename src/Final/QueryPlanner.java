@@ -0,0 +1,196 @@
+package Final;
+
+import java.util.Scanner;
+import java.util.concurrent.ForkJoinPool;
+import java.util.logging.Logger;
+
+/**
+ * Cost-based choice of engine, split depth and pool size for one pattern.
+ * The planner looks at the wildcard positions and fixed-move runs, whether the pattern is its own
+ * mirror, and a TreeSizeEstimator probe of both the pattern and its mirror, then picks:
+ * - PROFILE_DP: a long all-'*' tail behind a short prefix, or a long all-'*' head searched reversed
+ * - SEQUENTIAL: a small tree, one SearchKernel and no task hand-offs
+ * - FORK_JOIN: the Final.TotalPath frontier search with a pool sized to the estimated work
+ * - MEMOIZED: the same with a transposition table, only for very large trees
+ * A pattern and its reversed L/R-swapped mirror have the same count (see PatternCache), so any of
+ * them may run on the mirror when its tree is clearly smaller, which searches the path backwards
+ * from the end cell. Every plan and its outcome are logged for auditing.
+ */
+public final class QueryPlanner {
+    private static final int TOTAL_MOVES = 63;
+    private static final Logger LOG = Logger.getLogger(QueryPlanner.class.getName());
+
+    // Trees below this size finish before a parallel hand-off pays off
+    private static final double SEQUENTIAL_NODES = 1e6;
+    // The transposition table only broke even at 1.5e8 nodes, so it is kept for far larger trees
+    private static final double MEMOIZED_NODES = 2e9;
+    private static final long TABLE_BYTES = 256L << 20;
+    // The estimates are noisy, the mirror has to look clearly cheaper to be searched instead
+    private static final double REVERSE_GAIN = 2.0;
+    // Estimated single-thread work that justifies one more worker
+    private static final long MILLIS_PER_WORKER = 50;
+    // The frontier is expanded until it holds about this many prefixes per worker
+    private static final int PREFIXES_PER_WORKER = 64;
+    private static final int MIN_SPLIT_DEPTH = 20;
+    private static final int MAX_SPLIT_DEPTH = 40;
+
+    public enum Strategy {
+        INFEASIBLE,
+        PROFILE_DP,
+        SEQUENTIAL,
+        FORK_JOIN,
+        MEMOIZED
+    }
+
+    /**
+     * The chosen strategy and its parameters; searchPattern is the mirror when reversed.
+     */
+    public record Plan(String pattern, String searchPattern, Strategy strategy, boolean reversed,
+                       int splitDepth, int threads, double estimatedNodes, long estimatedMillis, String reason) {
+        @Override
+        public String toString() {
+            return String.format("%s%s, split depth %d, %d threads, ~%.2e nodes, ~%,d ms (%s)",
+                    strategy, reversed ? " reversed" : "", splitDepth, threads, estimatedNodes, estimatedMillis, reason);
+        }
+    }
+
+    private QueryPlanner() {
+    }
+
+    /**
+     * Plans a validated pattern for at most maxThreads workers.
+     */
+    public static Plan plan(String path, int maxThreads) {
+        CompiledPattern pattern = CompiledPattern.compile(path);
+        String mirror = PatternCache.mirror(path);
+        boolean symmetric = mirror.equals(path);
+        int wildcards = pattern.wildcardCount();
+        String shape = String.format("%d wildcards, longest fixed run %d%s", wildcards, longestFixedRun(path),
+                symmetric ? ", self-symmetric" : "");
+
+        if (!pattern.canMatch()) {
+            return log(new Plan(path, path, Strategy.INFEASIBLE, false, 0, 0, 0, 0,
+                    shape + ", feasibility masks rule out every path"));
+        }
+
+        // The same check Final.TotalPath routes on, so a pattern the DP is not planned for never reaches it
+        if (ProfileDP.isSuitable(path)) {
+            int tail = TOTAL_MOVES - ProfileDP.wildcardTailStart(path);
+            return log(new Plan(path, path, Strategy.PROFILE_DP, false, 0, maxThreads, 0, 0,
+                    shape + ", wildcard tail of " + tail));
+        }
+        if (!symmetric && ProfileDP.isSuitable(mirror)) {
+            int head = TOTAL_MOVES - ProfileDP.wildcardTailStart(mirror);
+            return log(new Plan(path, mirror, Strategy.PROFILE_DP, true, 0, maxThreads, 0, 0,
+                    shape + ", wildcard head of " + head + " is the mirror's tail"));
+        }
+
+        // A self-symmetric pattern is its own mirror, one probe is enough
+        TreeSizeEstimator.Estimate forward = TreeSizeEstimator.estimate(path, TreeSizeEstimator.Engine.FRONTIER_SEARCH);
+        TreeSizeEstimator.Estimate backward = symmetric ? forward
+                : TreeSizeEstimator.estimate(mirror, TreeSizeEstimator.Engine.FRONTIER_SEARCH);
+        boolean reversed = backward.nodes() * REVERSE_GAIN < forward.nodes();
+        TreeSizeEstimator.Estimate chosen = reversed ? backward : forward;
+        String searchPattern = reversed ? mirror : path;
+        String probes = String.format("%s, probes %.2e forward / %.2e reversed", shape, forward.nodes(), backward.nodes());
+
+        if (chosen.nodes() < SEQUENTIAL_NODES) {
+            // Runs on a single SearchKernel, at its own rate
+            return log(new Plan(path, searchPattern, Strategy.SEQUENTIAL, reversed, 0, 1, chosen.nodes(),
+                    chosen.on(TreeSizeEstimator.Engine.SEARCH_KERNEL).millis(1), probes + ", small tree"));
+        }
+
+        int threads = (int) Math.max(1, Math.min(maxThreads, chosen.millis(1) / MILLIS_PER_WORKER));
+        int splitDepth = splitDepth(searchPattern, threads);
+        Strategy strategy = chosen.nodes() >= MEMOIZED_NODES ? Strategy.MEMOIZED : Strategy.FORK_JOIN;
+        return log(new Plan(path, searchPattern, strategy, reversed, splitDepth, threads,
+                chosen.nodes(), chosen.millis(threads), probes));
+    }
+
+    /**
+     * Runs the engine the plan names on a pool of its own size and logs the result next to the estimate.
+     */
+    public static long execute(Plan plan) {
+        long start = System.nanoTime();
+        long count;
+        if (plan.strategy() == Strategy.INFEASIBLE) {
+            count = 0;
+        } else if (plan.strategy() == Strategy.SEQUENTIAL) {
+            count = new SearchKernel().count(CompiledPattern.compile(plan.searchPattern()), null, 0, 0, 1L);
+        } else {
+            ForkJoinPool pool = new ForkJoinPool(plan.threads());
+            try {
+                count = switch (plan.strategy()) {
+                    case PROFILE_DP -> ProfileDP.countPaths(plan.searchPattern(), pool);
+                    case MEMOIZED -> TotalPath.countPaths(plan.searchPattern(), pool, plan.splitDepth(),
+                            new TranspositionTable(TABLE_BYTES));
+                    default -> TotalPath.countPaths(plan.searchPattern(), pool, plan.splitDepth(), null);
+                };
+            } finally {
+                pool.shutdown();
+            }
+        }
+        long millis = (System.nanoTime() - start) / 1_000_000;
+        LOG.info(String.format("Ran %s on %s: %,d paths in %,d ms (estimated %,d ms)",
+                plan.strategy(), plan.pattern(), count, millis, plan.estimatedMillis()));
+        return count;
+    }
+
+    // Moves merged into the frontier: far enough for the workers' share of prefixes, past fixed runs
+    private static int splitDepth(String path, int threads) {
+        int neededWildcards = 64 - Long.numberOfLeadingZeros((long) threads * PREFIXES_PER_WORKER - 1);
+        int seen = 0;
+        int depth = MAX_SPLIT_DEPTH;
+        for (int i = 0; i < TOTAL_MOVES; i++) {
+            if (path.charAt(i) == '*' && ++seen == neededWildcards) {
+                depth = i + 1;
+                break;
+            }
+        }
+        return Math.min(MAX_SPLIT_DEPTH, Math.max(MIN_SPLIT_DEPTH, depth));
+    }
+
+    private static int longestFixedRun(String path) {
+        int longest = 0, run = 0;
+        for (int i = 0; i < path.length(); i++) {
+            run = path.charAt(i) == '*' ? 0 : run + 1;
+            longest = Math.max(longest, run);
+        }
+        return longest;
+    }
+
+    private static Plan log(Plan plan) {
+        LOG.info("Plan for " + plan.pattern() + ": " + plan);
+        return plan;
+    }
+
+    private static boolean isValidInput(String path) {
+        if (path.length() != TOTAL_MOVES) {
+            return false;
+        }
+        return path.matches("[UDLR*]+");
+    }
+
+    public static void main(String[] args) {
+        Scanner scanner = new Scanner(System.in);
+        System.out.print("Input:\n");
+        String path = scanner.nextLine();
+
+        if (!isValidInput(path)) {
+            System.out.println("Invalid input. Path must be " + TOTAL_MOVES +
+                    " characters long and contain only U, D, L, R, or *");
+            return;
+        }
+
+        long startTime = System.currentTimeMillis();
+        Plan plan = plan(path, Runtime.getRuntime().availableProcessors());
+        System.out.println("\nPlan: " + plan);
+        long totalPaths = execute(plan);
+        long totalTime = System.currentTimeMillis() - startTime;
+
+        System.out.println("\nFinal Results:");
+        System.out.println("Total paths: " + totalPaths);
+        System.out.println("Time (ms): " + totalTime);
+        scanner.close();
+    }
+}
@@ -0,0 +1,215 @@
+package Final;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.function.LongSupplier;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Progress of one running query, published as a JMX MBean instead of a polling loop on the main thread.
+ * The main thread blocks on its root task with await; a daemon progress thread runs the engine's periodic work
+ * (checkpoint writes) and, on an interactive terminal only, refreshes the progress line.
+ * The MBean is registered with -Dtotalpath.jmx=true or when remote JMX is configured: starting the
+ * platform MBean server takes about 0.3 s, which short queries should not pay for.
+ *
+ * The fraction done counts top-level subtrees: the frontier states of Final.TotalPath, or for engines
+ * without a frontier the root's share split evenly among the children at every fork, so the finished
+ * tasks add up to 1. The ETA assumes the remaining subtrees take as long on average as the finished ones.
+ */
+public final class QueryProgress implements QueryProgressMBean, AutoCloseable {
+    public static final boolean JMX_ENABLED = Boolean.getBoolean("totalpath.jmx")
+            || System.getProperty("com.sun.management.jmxremote.port") != null;
+    private static final long UPDATE_INTERVAL = 1000;
+    private static final AtomicInteger ids = new AtomicInteger();
+
+    private final String engine;
+    private final String pattern;
+    private final ForkJoinPool pool;
+    private final LongSupplier pathsFound;
+    private final long startNanos = System.nanoTime();
+    private final long nodesAtStart = EngineEvents.nodes();
+    private final long[] workerNodesAtStart = EngineEvents.nodesPerWorker();
+    private final DoubleAdder subtreesDone = new DoubleAdder();
+    private volatile double totalSubtrees = 1;
+    private ScheduledExecutorService progressThread;
+    private ObjectName name;
+
+    private QueryProgress(String engine, String pattern, ForkJoinPool pool, LongSupplier pathsFound) {
+        this.engine = engine;
+        this.pattern = pattern;
+        this.pool = pool;
+        this.pathsFound = pathsFound;
+    }
+
+    /**
+     * Starts tracking a query; periodic, if not null, runs on the progress thread every second.
+     */
+    public static QueryProgress start(String engine, String pattern, ForkJoinPool pool,
+                                      LongSupplier pathsFound, Runnable periodic) {
+        QueryProgress progress = new QueryProgress(engine, pattern, pool, pathsFound);
+        if (JMX_ENABLED) {
+            try {
+                progress.name = new ObjectName("Final:type=QueryProgress,engine=" + engine + ",id=" + ids.incrementAndGet());
+                ManagementFactory.getPlatformMBeanServer().registerMBean(progress, progress.name);
+            } catch (JMException e) {
+                System.out.println("Progress MBean unavailable: " + e.getMessage());
+                progress.name = null;
+            }
+        }
+
+        boolean console = System.console() != null;
+        if (console || periodic != null) {
+            progress.progressThread = Executors.newSingleThreadScheduledExecutor(task -> {
+                Thread thread = new Thread(task, "query-progress");
+                thread.setDaemon(true);
+                return thread;
+            });
+            progress.progressThread.scheduleAtFixedRate(() -> {
+                if (periodic != null) {
+                    periodic.run();
+                }
+                if (console) {
+                    System.out.print("\r" + progress);
+                }
+            }, UPDATE_INTERVAL, UPDATE_INTERVAL, TimeUnit.MILLISECONDS);
+        }
+        return progress;
+    }
+
+    // Number of top-level subtrees the query is split into, 1 when tracked as shares of the root
+    public void setTotalSubtrees(long subtrees) {
+        totalSubtrees = Math.max(1, subtrees);
+    }
+
+    /**
+     * Records finished top-level subtrees, or a share of one; safe to call from any worker.
+     */
+    public void subtreesDone(double subtrees) {
+        subtreesDone.add(subtrees);
+    }
+
+    /**
+     * Blocks until the task is done without running it on this thread, false if interrupted first.
+     * A thread outside the pool that joins a common-pool task it submitted takes the task back and runs
+     * it itself, where SplitPolicy cannot see a worker queue and forks at every branch point; a timed
+     * wait leaves the task to the workers.
+     */
+    public boolean await(ForkJoinTask<?> task) {
+        try {
+            task.get(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (TimeoutException e) {
+            throw new IllegalStateException("Search did not finish", e);
+        }
+    }
+
+    /**
+     * Stops the progress thread, after its current run, and unregisters the MBean.
+     */
+    @Override
+    public void close() {
+        if (progressThread != null) {
+            progressThread.shutdown();
+            try {
+                progressThread.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (name != null) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+            } catch (JMException e) {
+                // Already gone, nothing to clean up
+            }
+        }
+    }
+
+    @Override
+    public String getEngine() {
+        return engine;
+    }
+
+    @Override
+    public String getPattern() {
+        return pattern;
+    }
+
+    @Override
+    public long getPathsFound() {
+        return pathsFound.getAsLong();
+    }
+
+    @Override
+    public long getNodes() {
+        return EngineEvents.nodes() - nodesAtStart;
+    }
+
+    @Override
+    public long getNodesPerSecond() {
+        long millis = getElapsedMillis();
+        return millis > 0 ? getNodes() * 1000 / millis : 0;
+    }
+
+    @Override
+    public long getElapsedMillis() {
+        return (System.nanoTime() - startNanos) / 1_000_000;
+    }
+
+    @Override
+    public long[] getWorkerNodes() {
+        long[] nodes = EngineEvents.nodesPerWorker();
+        for (int worker = 0; worker < nodes.length; worker++) {
+            nodes[worker] -= workerNodesAtStart[worker];
+        }
+        return nodes;
+    }
+
+    @Override
+    public int getActiveWorkers() {
+        return pool.getActiveThreadCount();
+    }
+
+    @Override
+    public long getQueuedTasks() {
+        return pool.getQueuedTaskCount();
+    }
+
+    @Override
+    public double getFractionDone() {
+        return Math.min(1.0, subtreesDone.sum() / totalSubtrees);
+    }
+
+    @Override
+    public long getEtaMillis() {
+        double fraction = getFractionDone();
+        return fraction > 0 ? (long) (getElapsedMillis() * (1 - fraction) / fraction) : -1;
+    }
+
+    @Override
+    public String toString() {
+        long elapsedSeconds = getElapsedMillis() / 1000;
+        long paths = getPathsFound();
+        long eta = getEtaMillis();
+        return String.format("Paths found: %,d, Time elapsed: %ds, Paths/second: %,d, Nodes/second: %,d, Done: %.1f%%, ETA: %s",
+                paths, elapsedSeconds, elapsedSeconds > 0 ? paths / elapsedSeconds : 0, getNodesPerSecond(),
+                getFractionDone() * 100, eta < 0 ? "unknown" : eta / 1000 + "s");
+    }
+}
@@ -0,0 +1,32 @@
+package Final;
+
+/**
+ * Management interface of a running query, registered as Final:type=QueryProgress,engine=...,id=...
+ */
+public interface QueryProgressMBean {
+    String getEngine();
+
+    String getPattern();
+
+    long getPathsFound();
+
+    // Nodes searched by finished tasks, and their average rate since the start
+    long getNodes();
+
+    long getNodesPerSecond();
+
+    long getElapsedMillis();
+
+    // Nodes searched by each common pool worker, index i being worker i; all zero for queries on other pools
+    long[] getWorkerNodes();
+
+    int getActiveWorkers();
+
+    long getQueuedTasks();
+
+    // Share of the top-level subtrees finished, from 0 to 1
+    double getFractionDone();
+
+    // Expected milliseconds left at the rate of the elapsed time, -1 before any subtree is finished
+    long getEtaMillis();
+}
@@ -0,0 +1,494 @@
+package Final;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Pattern to path count store on local disk, shared by runs and by processes on the same host.
+ *
+ * The file is an append-only log of fixed 40-byte records: the pattern packed as 2 bits per move in
+ * two longs plus a 63-bit wildcard mask, the count, and a check word. Patterns are stored in their
+ * PatternCache.canonical form, so a pattern and its mirror share one record. Each process maps the
+ * file read-only and indexes it in an immutable open addressing table; lookups read the current
+ * index and the mapping without locks. A record whose check word does not match, such as the tail
+ * of an append still in progress, ends the indexed part of the log until the next refresh. A writer
+ * that died mid-append leaves a torn record behind, which the next append cuts off first.
+ *
+ * Appends and compaction take an exclusive lock on a sibling ".lock" file, so writers in different
+ * processes never interleave. A JVM can hold only one lock on a file, so stores of one JVM opened on
+ * the same file share that lock and take turns on it. Compaction rewrites the log with one record per
+ * key into a temporary file and renames it over the store; readers notice the new file on their next
+ * refresh and writers reopen it before appending. A miss re-reads the file at most once per
+ * REFRESH_INTERVAL_MS to pick up results written by other processes.
+ */
+public final class ResultStore implements AutoCloseable {
+    private static final int TOTAL_MOVES = 63;
+    private static final long MAGIC = 0x5041544853543031L;    // "PATHST01"
+    private static final int HEADER_BYTES = 16;
+    private static final int RECORD_BYTES = 5 * Long.BYTES;
+    private static final long REFRESH_INTERVAL_MS = 1000;
+
+    // Writer locks of the stores open in this JVM, by the canonical path of their lock file
+    private static final Map<Path, WriterLock> writerLocks = new HashMap<>();
+
+    private final Path file;
+    private final Path lockFile;
+    private WriterLock writerLock;
+    private volatile Index index;
+    private volatile long lastRefreshTime = 0;
+
+    // Writer side, only used under the instance lock
+    private FileChannel appendChannel;
+    private Object appendFileKey;
+    private final ByteBuffer record = ByteBuffer.allocate(RECORD_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder appends = new LongAdder();
+
+    /**
+     * Immutable view of the log: a mapping of its valid records and a hash index over them.
+     */
+    private static final class Index {
+        final Object fileKey;
+        final MappedByteBuffer buffer;
+        final int records;
+        final int[] slots;     // Record number + 1, 0 marks an empty slot
+        final int distinct;
+
+        Index(Object fileKey, MappedByteBuffer buffer, int records, int[] slots, int distinct) {
+            this.fileKey = fileKey;
+            this.buffer = buffer;
+            this.records = records;
+            this.slots = slots;
+            this.distinct = distinct;
+        }
+
+        long find(long moves0, long moves1, long wildcards) {
+            if (records == 0) {
+                return -1;
+            }
+            int mask = slots.length - 1;
+            int slot = hash(moves0, moves1, wildcards) & mask;
+            int entry;
+            while ((entry = slots[slot]) != 0) {
+                int offset = HEADER_BYTES + (entry - 1) * RECORD_BYTES;
+                if (buffer.getLong(offset) == moves0 && buffer.getLong(offset + 8) == moves1
+                        && buffer.getLong(offset + 16) == wildcards) {
+                    return buffer.getLong(offset + 24);
+                }
+                slot = (slot + 1) & mask;
+            }
+            return -1;
+        }
+    }
+
+    /**
+     * The lock file of one store, shared by every instance of this JVM that opened it. Holders take
+     * the ReentrantLock before the file lock, so the file lock is requested by one thread at a time.
+     */
+    private static final class WriterLock {
+        final Path key;
+        final FileChannel channel;
+        final ReentrantLock threads = new ReentrantLock();
+        FileLock fileLock;
+        int references = 0;  // Open stores using this lock, guarded by writerLocks
+
+        WriterLock(Path key, FileChannel channel) {
+            this.key = key;
+            this.channel = channel;
+        }
+
+        static WriterLock acquire(Path lockFile) throws IOException {
+            try {
+                Files.createFile(lockFile);
+            } catch (FileAlreadyExistsException e) {
+                // Created by an earlier run or another process
+            }
+            Path key = lockFile.toRealPath();
+            synchronized (writerLocks) {
+                WriterLock lock = writerLocks.get(key);
+                if (lock == null) {
+                    lock = new WriterLock(key, FileChannel.open(key, StandardOpenOption.WRITE));
+                    writerLocks.put(key, lock);
+                }
+                lock.references++;
+                return lock;
+            }
+        }
+
+        // Closes the channel once the last store using it is closed
+        void release() throws IOException {
+            synchronized (writerLocks) {
+                if (--references == 0) {
+                    writerLocks.remove(key);
+                    channel.close();
+                }
+            }
+        }
+
+        void lock() throws IOException {
+            threads.lock();
+            if (threads.getHoldCount() > 1) {
+                return;  // This thread already holds the file lock
+            }
+            try {
+                fileLock = channel.lock();
+            } catch (IOException | RuntimeException e) {
+                threads.unlock();
+                throw e;
+            }
+        }
+
+        void unlock() throws IOException {
+            try {
+                if (threads.getHoldCount() == 1) {
+                    fileLock.release();
+                    fileLock = null;
+                }
+            } finally {
+                threads.unlock();
+            }
+        }
+    }
+
+    private ResultStore(Path file) {
+        this.file = file;
+        this.lockFile = file.resolveSibling(file.getFileName() + ".lock");
+    }
+
+    /**
+     * Opens the store, creating an empty one if the file does not exist.
+     */
+    public static ResultStore open(Path file) throws IOException {
+        ResultStore store = new ResultStore(file);
+        store.writerLock = WriterLock.acquire(store.lockFile);
+        try {
+            store.writerLock.lock();
+            try {
+                if (!Files.exists(file) || Files.size(file) < HEADER_BYTES) {
+                    writeHeader(file);
+                }
+            } finally {
+                store.writerLock.unlock();
+            }
+            store.refresh();
+        } catch (IOException | RuntimeException e) {
+            store.close();
+            throw e;
+        }
+        return store;
+    }
+
+    /**
+     * Stored count of the pattern or of its mirror, -1 if the store has none.
+     */
+    public long get(String pattern) throws IOException {
+        String key = PatternCache.canonical(pattern);
+        long moves0 = packMoves(key, 0);
+        long moves1 = packMoves(key, 32);
+        long wildcards = packWildcards(key);
+
+        long count = index.find(moves0, moves1, wildcards);
+        if (count < 0 && System.currentTimeMillis() - lastRefreshTime >= REFRESH_INTERVAL_MS) {
+            refresh();
+            count = index.find(moves0, moves1, wildcards);
+        }
+        if (count < 0) {
+            misses.increment();
+        } else {
+            hits.increment();
+        }
+        return count;
+    }
+
+    /**
+     * Appends the count of a pattern to the log.
+     */
+    public synchronized void put(String pattern, long count) throws IOException {
+        String key = PatternCache.canonical(pattern);
+        long moves0 = packMoves(key, 0);
+        long moves1 = packMoves(key, 32);
+        long wildcards = packWildcards(key);
+
+        record.clear();
+        record.putLong(moves0).putLong(moves1).putLong(wildcards).putLong(count)
+                .putLong(check(moves0, moves1, wildcards, count));
+        record.flip();
+
+        writerLock.lock();
+        try {
+            // A compaction in another process may have replaced the file since it was opened
+            Object currentKey = fileKey(file);
+            if (appendChannel == null || !Objects.equals(currentKey, appendFileKey)) {
+                if (appendChannel != null) {
+                    appendChannel.close();
+                }
+                appendChannel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+                appendFileKey = currentKey;
+            }
+            // Appends are exclusive, so a torn record at the end is left by a writer that died mid-append;
+            // cutting it off keeps the records after it aligned and indexable
+            long end = completeLength(appendChannel);
+            if (end < appendChannel.size()) {
+                appendChannel.truncate(end);
+            }
+            while (record.hasRemaining()) {
+                end += appendChannel.write(record, end);
+            }
+        } finally {
+            writerLock.unlock();
+        }
+        appends.increment();
+    }
+
+    /**
+     * Rewrites the log with one record per pattern, the latest count winning.
+     */
+    public synchronized void compact() throws IOException {
+        writerLock.lock();
+        try {
+            Index current = buildIndex(null);
+            Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+            try (FileChannel out = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + current.distinct * RECORD_BYTES)
+                        .order(ByteOrder.LITTLE_ENDIAN);
+                buffer.putLong(MAGIC).putLong(0);
+                for (int entry : current.slots) {
+                    if (entry == 0) continue;
+                    int offset = HEADER_BYTES + (entry - 1) * RECORD_BYTES;
+                    for (int word = 0; word < 5; word++) {
+                        buffer.putLong(current.buffer.getLong(offset + word * Long.BYTES));
+                    }
+                }
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    out.write(buffer);
+                }
+                out.force(true);
+            }
+            try {
+                Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            writerLock.unlock();
+        }
+        refresh();
+    }
+
+    /**
+     * Maps the records appended since the last refresh, or the whole file if it was replaced.
+     */
+    public synchronized void refresh() throws IOException {
+        index = buildIndex(index);
+        lastRefreshTime = System.currentTimeMillis();
+    }
+
+    // Indexes the valid records of the file, reusing previous when the file is the same one
+    private Index buildIndex(Index previous) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            Object fileKey = fileKey(file);
+            long size = channel.size();
+            int available = (int) Math.min((size - HEADER_BYTES) / RECORD_BYTES,
+                    (Integer.MAX_VALUE - HEADER_BYTES) / RECORD_BYTES);
+            if (previous != null && Objects.equals(fileKey, previous.fileKey) && available == previous.records) {
+                return previous;
+            }
+
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+                    HEADER_BYTES + (long) available * RECORD_BYTES);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            if (buffer.getLong(0) != MAGIC) {
+                throw new IOException(file + " is not a result store");
+            }
+
+            boolean extend = previous != null && Objects.equals(fileKey, previous.fileKey);
+            int from = extend ? previous.records : 0;
+            int capacity = Integer.highestOneBit(Math.max(16, available * 2) - 1) << 1;
+            int[] slots = new int[capacity];
+            int distinct = 0;
+            if (extend) {
+                // Rehash the known records into the larger table
+                for (int entry : previous.slots) {
+                    if (entry != 0) {
+                        distinct += insert(slots, buffer, entry) ? 1 : 0;
+                    }
+                }
+            }
+
+            int records = from;
+            for (int i = from; i < available; i++) {
+                int offset = HEADER_BYTES + i * RECORD_BYTES;
+                long moves0 = buffer.getLong(offset);
+                long moves1 = buffer.getLong(offset + 8);
+                long wildcards = buffer.getLong(offset + 16);
+                long count = buffer.getLong(offset + 24);
+                if (buffer.getLong(offset + 32) != check(moves0, moves1, wildcards, count)) {
+                    break;  // Partially written tail, retried on the next refresh
+                }
+                distinct += insert(slots, buffer, i + 1) ? 1 : 0;
+                records = i + 1;
+            }
+            return new Index(fileKey, buffer, records, slots, distinct);
+        }
+    }
+
+    // Points the slot of the record's key at entry, true if the key was not indexed yet
+    private static boolean insert(int[] slots, ByteBuffer buffer, int entry) {
+        int offset = HEADER_BYTES + (entry - 1) * RECORD_BYTES;
+        long moves0 = buffer.getLong(offset);
+        long moves1 = buffer.getLong(offset + 8);
+        long wildcards = buffer.getLong(offset + 16);
+
+        int mask = slots.length - 1;
+        int slot = hash(moves0, moves1, wildcards) & mask;
+        while (slots[slot] != 0) {
+            int other = HEADER_BYTES + (slots[slot] - 1) * RECORD_BYTES;
+            if (buffer.getLong(other) == moves0 && buffer.getLong(other + 8) == moves1
+                    && buffer.getLong(other + 16) == wildcards) {
+                if (entry > slots[slot]) {
+                    slots[slot] = entry;  // Later records win
+                }
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+        slots[slot] = entry;
+        return true;
+    }
+
+    // Length of the file up to its last complete record whose check word matches
+    private static long completeLength(FileChannel channel) throws IOException {
+        long records = (channel.size() - HEADER_BYTES) / RECORD_BYTES;
+        ByteBuffer last = ByteBuffer.allocate(RECORD_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        while (records > 0) {
+            last.clear();
+            long offset = HEADER_BYTES + (records - 1) * RECORD_BYTES;
+            while (last.hasRemaining() && channel.read(last, offset + last.position()) >= 0) {
+                // Read the whole record
+            }
+            if (last.getLong(32) == check(last.getLong(0), last.getLong(8), last.getLong(16), last.getLong(24))) {
+                break;
+            }
+            records--;
+        }
+        return HEADER_BYTES + records * RECORD_BYTES;
+    }
+
+    private static void writeHeader(Path file) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        header.putLong(MAGIC).putLong(0).flip();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (header.hasRemaining()) {
+                channel.write(header);
+            }
+        }
+    }
+
+    private static Object fileKey(Path file) throws IOException {
+        return Files.readAttributes(file, BasicFileAttributes.class).fileKey();
+    }
+
+    // Moves from..from+31 of the pattern at 2 bits each, wildcards packed as 0
+    private static long packMoves(String pattern, int from) {
+        long packed = 0;
+        for (int i = from; i < Math.min(from + 32, TOTAL_MOVES); i++) {
+            byte move = CompiledPattern.encode(pattern.charAt(i));
+            if (move < 0) {
+                throw new IllegalArgumentException("Invalid move '" + pattern.charAt(i) + "' at index " + i);
+            }
+            if (move != CompiledPattern.WILDCARD) {
+                packed |= (long) move << (2 * (i - from));
+            }
+        }
+        return packed;
+    }
+
+    private static long packWildcards(String pattern) {
+        if (pattern.length() != TOTAL_MOVES) {
+            throw new IllegalArgumentException("Pattern must be " + TOTAL_MOVES + " characters long");
+        }
+        long mask = 0;
+        for (int i = 0; i < TOTAL_MOVES; i++) {
+            if (pattern.charAt(i) == '*') {
+                mask |= 1L << i;
+            }
+        }
+        return mask;
+    }
+
+    private static long check(long moves0, long moves1, long wildcards, long count) {
+        long h = MAGIC;
+        h = (h ^ moves0) * 0x9E3779B97F4A7C15L;
+        h = (h ^ moves1) * 0x9E3779B97F4A7C15L;
+        h = (h ^ wildcards) * 0x9E3779B97F4A7C15L;
+        h = (h ^ count) * 0x9E3779B97F4A7C15L;
+        return h ^ (h >>> 29);
+    }
+
+    private static int hash(long moves0, long moves1, long wildcards) {
+        long h = (moves0 * 0x9E3779B97F4A7C15L) ^ (moves1 * 0xC2B2AE3D27D4EB4FL) ^ (wildcards * 0x165667B19E3779F9L);
+        return (int) (h ^ (h >>> 32));
+    }
+
+    // Distinct patterns currently indexed
+    public int size() {
+        return index.distinct;
+    }
+
+    public String stats() {
+        Index current = index;
+        return String.format("Result store %s: %,d patterns in %,d records, %,d hits, %,d misses, %,d appends",
+                file, current.distinct, current.records, hits.sum(), misses.sum(), appends.sum());
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (appendChannel != null) {
+            appendChannel.close();
+            appendChannel = null;
+        }
+        if (writerLock != null) {
+            writerLock.release();
+            writerLock = null;
+        }
+    }
+
+    /**
+     * Prints the store statistics, compacting it first when called with --compact.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.out.println("Usage: java Final.ResultStore <store file> [--compact]");
+            return;
+        }
+        try (ResultStore store = open(Path.of(args[0]))) {
+            if (args.length > 1 && args[1].equals("--compact")) {
+                long startTime = System.currentTimeMillis();
+                store.compact();
+                System.out.println("Compacted in " + (System.currentTimeMillis() - startTime) + " ms");
+            }
+            System.out.println(store.stats());
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package Final;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Wall-clock and node limits shared by all workers of one query.
+ * Kernels charge their nodes in blocks (see SearchKernel.setBudget) and tasks ask exhausted() before
+ * starting a subtree, so the limits are checked cooperatively and cost nothing per node; the node
+ * limit may be overshot by one block per worker. Once exhausted a budget stays exhausted.
+ */
+public final class SearchBudget {
+    private final long deadlineNanos;
+    private final long maxNodes;
+    private final LongAdder nodes = new LongAdder();
+    private volatile boolean exhausted = false;
+
+    /**
+     * A budget of the given milliseconds from now and nodes, 0 leaving that limit off.
+     */
+    public SearchBudget(long millis, long maxNodes) {
+        this.deadlineNanos = millis > 0 ? System.nanoTime() + millis * 1_000_000 : Long.MAX_VALUE;
+        this.maxNodes = maxNodes > 0 ? maxNodes : Long.MAX_VALUE;
+    }
+
+    /**
+     * Adds searched nodes, returns whether the budget still has room.
+     */
+    public boolean charge(long searched) {
+        nodes.add(searched);
+        if (!exhausted && nodes.sum() >= maxNodes) {
+            exhausted = true;
+        }
+        return !exhausted();
+    }
+
+    public boolean exhausted() {
+        if (!exhausted && deadlineNanos != Long.MAX_VALUE && System.nanoTime() - deadlineNanos >= 0) {
+            exhausted = true;
+        }
+        return exhausted;
+    }
+
+    // Stops the query early, as if the budget had run out
+    public void cancel() {
+        exhausted = true;
+    }
+
+    public long nodes() {
+        return nodes.sum();
+    }
+}
@@ -0,0 +1,204 @@
+package Final;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Allocation-free iterative backtracking kernel.
+ * The recursion of explorePaths is replaced by explicit per-depth stacks of position, visited set,
+ * pending candidate cells and subtree count, all preallocated for the 63 moves, so running a subtree
+ * costs no calls and allocates nothing. Candidates come from MoveGenerator and are popped lowest bit
+ * first. A kernel is not thread-safe; every worker thread keeps one.
+ * An optional SearchBudget is checked every BUDGET_CHECK_INTERVAL nodes, so a count can be cut short
+ * for one comparison per node.
+ * With -Dtotalpath.stats=true every node and prune is also recorded in PruneStats.
+ */
+public final class SearchKernel {
+    private static final int GRID_SIZE = 8;
+    private static final int TOTAL_MOVES = 63;
+    private static final int END_POS = (GRID_SIZE - 1) * GRID_SIZE;
+
+    // Only subtrees with at least MEMO_MIN_MOVES_LEFT moves are worth a transposition table lookup
+    private static final int MEMO_MIN_MOVES_LEFT = 16;
+
+    // Returned by count when the budget ran out before the subtree was finished
+    public static final long CANCELLED = -1;
+    private static final long BUDGET_CHECK_INTERVAL = 1 << 14;
+
+    private static final int[] DISTANCE_TO_END = new int[GRID_SIZE * GRID_SIZE];
+
+    static {
+        for (int x = 0; x < GRID_SIZE; x++) {
+            for (int y = 0; y < GRID_SIZE; y++) {
+                DISTANCE_TO_END[x * GRID_SIZE + y] = Math.abs(x - (GRID_SIZE - 1)) + Math.abs(y);
+            }
+        }
+    }
+
+    // Per-depth stacks, indexed by move index
+    private final int[] positions = new int[TOTAL_MOVES + 1];
+    private final long[] visitedSets = new long[TOTAL_MOVES + 1];
+    private final long[] pending = new long[TOTAL_MOVES + 1];
+    private final long[] counts = new long[TOTAL_MOVES + 1];
+
+    private long nodes = 0;
+
+    private SearchBudget budget = null;
+    private long budgetCharged = 0;  // Value of nodes when the budget was last charged
+    private long nextBudgetCheck = Long.MAX_VALUE;
+
+    /**
+     * Counts the paths of the subtree rooted at pos after moveIndex moves.
+     * The table is optional and may be null. Returns CANCELLED if the budget runs out first.
+     */
+    public long count(CompiledPattern pattern, TranspositionTable table, int pos, int moveIndex, long visited) {
+        if (moveIndex == TOTAL_MOVES) {
+            return pos == END_POS ? 1 : 0;
+        }
+        if (!canReachEnd(pos, TOTAL_MOVES - moveIndex, visited)) {
+            return 0;
+        }
+
+        int base = moveIndex;
+        int depth = base;
+        enter(pattern, depth, pos, visited);
+
+        while (true) {
+            long remaining = pending[depth];
+            if (remaining == 0) {
+                // Every direction tried, hand the subtree count to the parent
+                long subtree = counts[depth];
+                if (table != null && TOTAL_MOVES - depth >= MEMO_MIN_MOVES_LEFT) {
+                    table.store(positions[depth], visitedSets[depth], depth, subtree);
+                }
+                if (depth == base) {
+                    return subtree;
+                }
+                depth--;
+                counts[depth] += subtree;
+                continue;
+            }
+
+            long bitMask = remaining & -remaining;
+            pending[depth] = remaining ^ bitMask;
+            int next = Long.numberOfTrailingZeros(bitMask);
+
+            // The feasibility mask only allows the end cell for the last move
+            if (depth + 1 == TOTAL_MOVES) {
+                counts[depth]++;
+                nodes++;
+                if (PruneStats.ENABLED) PruneStats.leaf();
+                continue;
+            }
+
+            long nextVisited = visitedSets[depth] | bitMask;
+            if (!canReachEnd(next, TOTAL_MOVES - depth - 1, nextVisited)) continue;
+
+            if (table != null && TOTAL_MOVES - depth - 1 >= MEMO_MIN_MOVES_LEFT) {
+                long cached = table.probe(next, nextVisited);
+                if (cached >= 0) {
+                    counts[depth] += cached;
+                    continue;
+                }
+            }
+
+            if (nodes >= nextBudgetCheck && !chargeBudget()) {
+                return CANCELLED;
+            }
+            depth++;
+            enter(pattern, depth, next, nextVisited);
+        }
+    }
+
+    /**
+     * Charges the nodes of later counts to the budget, or to none when null; the nodes since the last
+     * check are charged to the previous budget.
+     */
+    public void setBudget(SearchBudget budget) {
+        if (this.budget != null) {
+            this.budget.charge(nodes - budgetCharged);
+        }
+        this.budget = budget;
+        budgetCharged = nodes;
+        nextBudgetCheck = budget != null ? nodes + BUDGET_CHECK_INTERVAL : Long.MAX_VALUE;
+    }
+
+    // Whether the budget still has room after the nodes since the last check
+    private boolean chargeBudget() {
+        boolean left = budget.charge(nodes - budgetCharged);
+        budgetCharged = nodes;
+        nextBudgetCheck = nodes + BUDGET_CHECK_INTERVAL;
+        return left;
+    }
+
+    private void enter(CompiledPattern pattern, int depth, int pos, long visited) {
+        positions[depth] = pos;
+        visitedSets[depth] = visited;
+        counts[depth] = 0;
+        pending[depth] = MoveGenerator.candidates(pattern, depth, pos, visited);
+        nodes++;
+        if (PruneStats.ENABLED) {
+            PruneStats.node(depth, MoveGenerator.candidates(pos, visited, pattern.moves[depth]), pending[depth]);
+        }
+    }
+
+    /**
+     * Manhattan distance, remaining cell count and bitboard dead-cell / connectivity checks.
+     */
+    public static boolean canReachEnd(int pos, int movesLeft, long visited) {
+        if (PruneStats.ENABLED) {
+            return PruneStats.canReachEnd(pos, movesLeft, visited);
+        }
+        return lookAhead(pos, movesLeft, visited);
+    }
+
+    // The same checks, never recorded in PruneStats, for callers that only probe the tree
+    static boolean lookAhead(int pos, int movesLeft, long visited) {
+        if (DISTANCE_TO_END[pos] > movesLeft) {
+            return false;
+        }
+        if (movesLeft > GRID_SIZE * GRID_SIZE - Long.bitCount(visited)) {
+            return false;
+        }
+        return Bitboard.canComplete(visited, pos, END_POS);
+    }
+
+    // Nodes entered by this kernel since it was created
+    public long nodes() {
+        return nodes;
+    }
+
+    /**
+     * Checks that the steady state allocates nothing: warms the kernel up, then measures the bytes
+     * allocated by this thread while counting the same pattern again.
+     */
+    public static void main(String[] args) {
+        String path = args.length > 0 ? args[0]
+                : "DDDDDDRUUUUUURDDDDDD*******************************************";
+        CompiledPattern pattern = CompiledPattern.compile(path);
+        SearchKernel kernel = new SearchKernel();
+
+        for (int i = 0; i < 20; i++) {
+            kernel.count(pattern, null, 0, 0, 1L);
+        }
+
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        long nodesBefore = kernel.nodes();
+        long bytesBefore = threads.getThreadAllocatedBytes(threadId);
+        long paths = 0;
+        for (int i = 0; i < 20; i++) {
+            paths = kernel.count(pattern, null, 0, 0, 1L);
+        }
+        long bytes = threads.getThreadAllocatedBytes(threadId) - bytesBefore;
+        long nodes = kernel.nodes() - nodesBefore;
+
+        System.out.println("Total paths: " + paths);
+        System.out.printf("Nodes: %,d, allocated bytes: %,d, bytes per node: %.6f%n",
+                nodes, bytes, (double) bytes / nodes);
+        if (bytes != 0) {
+            System.out.println("Kernel allocated in steady state");
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package Final;
+
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Adaptive replacement for a fixed PARALLEL_THRESHOLD move index.
+ * A task forks only at a branch point, and only while the current worker holds few queued tasks that
+ * no other worker has stolen yet. Forced moves are followed inline, so a pattern that opens with a long
+ * run of fixed moves still splits at its first wildcards, and idle workers make busy ones fork again
+ * wherever the '*' characters are. Must be called from inside a ForkJoinPool task.
+ */
+public final class SplitPolicy {
+    private static final int TOTAL_MOVES = 63;
+
+    // Unstolen tasks a worker may have queued before it stops forking and runs its subtree itself
+    private static final int SURPLUS_LIMIT = 3;
+
+    // Subtrees with fewer moves left finish faster than a task hand-off is worth
+    private static final int MIN_MOVES_LEFT = 12;
+
+    private SplitPolicy() {
+    }
+
+    /**
+     * Whether a branch point after moveIndex moves should fork its children instead of running the
+     * subtree sequentially on this worker.
+     */
+    public static boolean shouldSplit(int moveIndex) {
+        return TOTAL_MOVES - moveIndex >= MIN_MOVES_LEFT
+                && ForkJoinTask.getSurplusQueuedTaskCount() <= SURPLUS_LIMIT;
+    }
+
+    // More than one candidate cell, so the move is a real branch point
+    public static boolean isBranchPoint(long candidates) {
+        return (candidates & (candidates - 1)) != 0;
+    }
+}
@@ -0,0 +1,139 @@
+package Final;
+
+/**
+ * Open addressing map from a search state (position, visited bitmask) to the number of
+ * ways that state was reached. Used to collect and merge search frontiers without boxing.
+ * Not thread-safe: each ForkJoin task fills its own table and tables are merged afterwards.
+ */
+public class StateTable {
+    private static final int DEFAULT_CAPACITY = 1024;  // Must be a power of two
+    private static final float LOAD_FACTOR = 0.60f;    // Resize the table when 60% full
+
+    private long[] visitedKeys;
+    private byte[] positionKeys;
+    private long[] counts;     // 0 marks an empty slot
+    private int size;
+
+    // Create a StateTable with default capacity
+    public StateTable() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public StateTable(int initialCapacity) {
+        int capacity = Integer.highestOneBit(Math.max(DEFAULT_CAPACITY, initialCapacity) - 1) << 1;
+        visitedKeys = new long[capacity];
+        positionKeys = new byte[capacity];
+        counts = new long[capacity];
+        size = 0;
+    }
+
+    // Add count ways of reaching (pos, visited)
+    public void add(int pos, long visited, long count) {
+        if (size >= counts.length * LOAD_FACTOR) {
+            resize(counts.length * 2);
+        }
+        int mask = counts.length - 1;
+        int slot = hash(pos, visited) & mask;
+        while (counts[slot] != 0) {
+            if (visitedKeys[slot] == visited && positionKeys[slot] == pos) {
+                counts[slot] += count;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        visitedKeys[slot] = visited;
+        positionKeys[slot] = (byte) pos;
+        counts[slot] = count;
+        size++;
+    }
+
+    // Number of ways (pos, visited) was reached, 0 if never
+    public long get(int pos, long visited) {
+        int mask = counts.length - 1;
+        int slot = hash(pos, visited) & mask;
+        while (counts[slot] != 0) {
+            if (visitedKeys[slot] == visited && positionKeys[slot] == pos) {
+                return counts[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return 0;
+    }
+
+    // Fold every entry of other into this table
+    public void addAll(StateTable other) {
+        for (int slot = 0; slot < other.counts.length; slot++) {
+            if (other.counts[slot] != 0) {
+                add(other.positionKeys[slot], other.visitedKeys[slot], other.counts[slot]);
+            }
+        }
+    }
+
+    // Merge two tables, reusing the larger one
+    public static StateTable merge(StateTable a, StateTable b) {
+        if (a.size < b.size) {
+            StateTable tmp = a;
+            a = b;
+            b = tmp;
+        }
+        a.addAll(b);
+        return a;
+    }
+
+    // Slot accessors so callers can scan a range of the table in parallel
+    public int capacity() {
+        return counts.length;
+    }
+
+    public boolean isOccupied(int slot) {
+        return counts[slot] != 0;
+    }
+
+    public int positionAt(int slot) {
+        return positionKeys[slot];
+    }
+
+    public long visitedAt(int slot) {
+        return visitedKeys[slot];
+    }
+
+    public long countAt(int slot) {
+        return counts[slot];
+    }
+
+    // Number of distinct states
+    public int size() {
+        return size;
+    }
+
+    // Sum of all counts, i.e. the number of paths that were folded into the table
+    public long totalCount() {
+        long total = 0;
+        for (long count : counts) {
+            total += count;
+        }
+        return total;
+    }
+
+    private static int hash(int pos, long visited) {
+        long h = (visited ^ ((long) pos << 58)) * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private void resize(int newCapacity) {
+        long[] oldVisited = visitedKeys;
+        byte[] oldPositions = positionKeys;
+        long[] oldCounts = counts;
+
+        visitedKeys = new long[newCapacity];
+        positionKeys = new byte[newCapacity];
+        counts = new long[newCapacity];
+        size = 0;
+
+        for (int slot = 0; slot < oldCounts.length; slot++) {
+            if (oldCounts[slot] != 0) {
+                add(oldPositions[slot], oldVisited[slot], oldCounts[slot]);
+            }
+        }
+    }
+}
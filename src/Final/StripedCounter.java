@@ -0,0 +1,107 @@
+package Final;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+
+/**
+ * Path counter with one cache-line-padded stripe per ForkJoinPool worker.
+ * A worker only ever adds to its own stripe, picked by ForkJoinWorkerThread.getPoolIndex(), so
+ * finding a path never touches a cache line another core is writing. Threads outside the pool
+ * (the caller of invoke, the progress loop, workers of any other pool) share stripe 0, so a worker
+ * index is never credited with another pool's work. Stripes are summed lazily whenever the
+ * total is read, which makes the total a moment-in-time estimate while workers are still running
+ * and exact once they are done.
+ */
+public final class StripedCounter {
+    // 16 longs = 128 bytes between stripes, two cache lines so adjacent-line prefetch does not pair them
+    private static final int PADDING = 16;
+    private static final VarHandle STRIPES = MethodHandles.arrayElementVarHandle(long[].class);
+
+    private final long[] cells;
+    private final ForkJoinPool pool;
+    private final int workers;
+
+    /**
+     * Creates a counter for the workers of the given pool.
+     */
+    public StripedCounter(ForkJoinPool pool) {
+        this.pool = pool;
+        this.workers = Math.max(1, pool.getParallelism());
+        // One extra stripe for external threads and one of padding at each end
+        this.cells = new long[(workers + 2) * PADDING];
+    }
+
+    public void increment() {
+        add(1);
+    }
+
+    public void add(long paths) {
+        if (paths != 0) {
+            STRIPES.getAndAdd(cells, indexOf(stripe()), paths);
+        }
+    }
+
+    // Sum of all stripes
+    public long sum() {
+        long total = 0;
+        for (int stripe = 0; stripe <= workers; stripe++) {
+            total += (long) STRIPES.getOpaque(cells, indexOf(stripe));
+        }
+        return total;
+    }
+
+    public void reset() {
+        for (int stripe = 0; stripe <= workers; stripe++) {
+            STRIPES.setOpaque(cells, indexOf(stripe), 0L);
+        }
+    }
+
+    /**
+     * Paths counted by each worker, index i being pool worker i; paths added from outside the pool
+     * are not included, see external().
+     */
+    public long[] perWorker() {
+        long[] counts = new long[workers];
+        for (int worker = 0; worker < workers; worker++) {
+            counts[worker] = (long) STRIPES.getOpaque(cells, indexOf(worker + 1));
+        }
+        return counts;
+    }
+
+    // Paths added by threads that are not workers of the pool
+    public long external() {
+        return (long) STRIPES.getOpaque(cells, indexOf(0));
+    }
+
+    /**
+     * One line per worker with its share of the paths.
+     */
+    public String breakdown() {
+        long total = sum();
+        StringBuilder sb = new StringBuilder("Paths per worker:");
+        long[] counts = perWorker();
+        for (int worker = 0; worker < counts.length; worker++) {
+            sb.append(String.format("%n  worker %d: %,d (%.1f%%)", worker, counts[worker],
+                    total > 0 ? counts[worker] * 100.0 / total : 0.0));
+        }
+        if (external() != 0) {
+            sb.append(String.format("%n  external: %,d", external()));
+        }
+        return sb.toString();
+    }
+
+    // Stripe of the calling thread, 0 for threads outside the pool
+    private int stripe() {
+        if (Thread.currentThread() instanceof ForkJoinWorkerThread worker && worker.getPool() == pool) {
+            // Spare threads created to compensate for blocked joins may have a higher pool index
+            return 1 + worker.getPoolIndex() % workers;
+        }
+        return 0;
+    }
+
+    private static int indexOf(int stripe) {
+        return (stripe + 1) * PADDING;
+    }
+}
@@ -1,219 +1,303 @@
 package Final;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.Scanner;
 import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.RecursiveAction;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
 public class TotalPath {
     // Constants for grid dimensions
     private static final int GRID_SIZE = 8;
     private static final int TOTAL_MOVES = 63;
+    private static final int END_POS = (GRID_SIZE - 1) * GRID_SIZE;
+    private static final String ENGINE = "Final.TotalPath";
 
-    // Threshold for parallelism
-    // This usually depends on the size of the problem, the computer memory and the number of available processors.
-    // 1 for only Sequential processing, 63 for only Parallel processing.
-    // 2-62 for hybrid processing, where the problem is divided into smaller subproblems and solved sequentially.
-    // 11 is a good balance for this problem for my computer, each computer may have different optimal threshold.
-    private static final int PARALLEL_THRESHOLD = 11;
-
-    // Single counter for all paths
-    private static final AtomicLong totalPaths = new AtomicLong(0);
+    // Per-worker striped counter for the paths of main's search, summed for progress and the final result
+    private static final StripedCounter totalPaths = new StripedCounter(ForkJoinPool.commonPool());
     private static long startTime = 0;
-    private static long lastUpdateTime = 0;
-    private static final long UPDATE_INTERVAL = 1000;
 
-    // Possible movement directions
-    private static final int[] DX = {1, -1, 0, 0};  // Down, Up, Right, Left
-    private static final int[] DY = {0, 0, 1, -1};
+    // Progress of the search started by main, published over JMX
+    private static QueryProgress progress = null;
+
+    // Optional memo of subtree counts shared by the workers of main's search, enabled with -Dtotalpath.tt.mb=<size>
+    private static TranspositionTable transpositionTable = null;
+
+    // Optional progress file of finished frontier states, enabled with -Dtotalpath.checkpoint=<file>
+    // An existing file for the same pattern is resumed, -Dtotalpath.checkpoint.seconds sets the write interval
+    private static Checkpoint checkpoint = null;
+
+    // Optional on-disk store of finished patterns shared across runs, enabled with -Dtotalpath.store=<file>
+    private static ResultStore resultStore = null;
+
+    // The first moves are expanded breadth-first to this depth and identical states merged before the
+    // parallel search, -Dtotalpath.frontier.depth=<moves> changes it and 0 turns the merging off
+    private static final int FRONTIER_DEPTH = Integer.getInteger("totalpath.frontier.depth", 20);
+    private static final int FRONTIER_SLOTS_PER_TASK = 64;
+
+    // Every worker thread runs its leaf subtrees on its own iterative kernel
+    // -Dtotalpath.kernel=vector switches the leaves to the Vector API kernel of src-vector, see VectorKernel
+    private static final ThreadLocal<SearchKernel> kernels = ThreadLocal.withInitial(SearchKernel::new);
+    private static final ThreadLocal<LaneKernel> laneKernels = ThreadLocal.withInitial(LaneKernel::create);
+    private static final boolean useLaneKernel = "vector".equals(System.getProperty("totalpath.kernel"));
+
+    /**
+     * One search: its path counter and the optional table, checkpoint and progress its tasks report to.
+     * Every task carries the search it belongs to, so searches running at the same time never see
+     * each other's paths or table.
+     */
+    public static final class Search {
+        private final StripedCounter paths;
+        private final TranspositionTable table;
+        private final Checkpoint checkpoint;
+        private final QueryProgress progress;
+
+        public Search(StripedCounter paths, TranspositionTable table, Checkpoint checkpoint, QueryProgress progress) {
+            this.paths = paths;
+            this.table = table;
+            this.checkpoint = checkpoint;
+            this.progress = progress;
+        }
+
+        // A search with only its own counter, for the workers of pool
+        public Search(ForkJoinPool pool, TranspositionTable table) {
+            this(new StripedCounter(pool), table, null, null);
+        }
+
+        public long paths() {
+            return paths.sum();
+        }
+    }
 
     public static class PathExplorer extends RecursiveAction {
         private final int x, y, moveIndex;
         private final long visited;
-        private final String path;
+        private final CompiledPattern pattern;
+        private final long multiplicity;  // Number of merged prefixes that reached this state
+        private final LongAdder statePaths;  // Paths of the frontier state this task belongs to, null if untracked
+        private final Search search;
 
-        public PathExplorer(int x, int y, int moveIndex, long visited, String path) {
+        public PathExplorer(int x, int y, int moveIndex, long visited, CompiledPattern pattern, Search search) {
+            this(x, y, moveIndex, visited, pattern, 1, null, search);
+        }
+
+        public PathExplorer(int x, int y, int moveIndex, long visited, CompiledPattern pattern,
+                            long multiplicity, LongAdder statePaths, Search search) {
             this.x = x;
             this.y = y;
             this.moveIndex = moveIndex;
             this.visited = visited;
-            this.path = path;
+            this.pattern = pattern;
+            this.multiplicity = multiplicity;
+            this.statePaths = statePaths;
+            this.search = search;
+        }
+
+        private void addPaths(long paths) {
+            search.paths.add(paths);
+            if (statePaths != null) {
+                statePaths.add(paths);
+            }
         }
 
         @Override
         protected void compute() {
-            // Early termination checks
-            if (!canReachEnd(x, y, TOTAL_MOVES - moveIndex, visited)) {
-                return;
-            }
+            EngineEvents.TaskExecuted event = EngineEvents.taskStarted();
+            EngineEvents.taskFinished(event, ENGINE, moveIndex, explore());
+        }
 
-            // Base case: reached end of path
-            if (moveIndex == TOTAL_MOVES) {
-                if (x == GRID_SIZE - 1 && y == 0) {
-                    totalPaths.incrementAndGet();
+        // Searches this node and follows its forced moves in place, returns the nodes searched without forking
+        private long explore() {
+            int position = x * GRID_SIZE + y;
+            int move = moveIndex;
+            long seen = visited;
+            long nodes = 0;
+            while (true) {
+                nodes++;
+
+                // Early termination checks
+                if (!canReachEnd(position, TOTAL_MOVES - move, seen)) {
+                    return nodes;
                 }
-                return;
-            }
-
-            char currentMove = path.charAt(moveIndex);
-            TaskQueue subtasks = new TaskQueue();
 
-            // Handle wildcard moves
-            if (currentMove == '*') {
-                for (int dir = 0; dir < 4; dir++) {
-                    int newX = x + DX[dir];
-                    int newY = y + DY[dir];
-
-                    long pos = (long) newX * GRID_SIZE + newY;
-                    long bitMask = 1L << pos;
-
-                    if (isValid(newX, newY) && (visited & bitMask) == 0) {
-                        // Additional check for end position
-                        if (moveIndex == TOTAL_MOVES - 1 && (newX != GRID_SIZE - 1 || newY != 0)) {
-                            continue;
-                        }
-
-                        if (moveIndex < PARALLEL_THRESHOLD) {
-                            subtasks.add(new PathExplorer(newX, newY, moveIndex + 1,
-                                    visited | bitMask, path));
-                        } else {
-                            explorePaths(newX, newY, moveIndex + 1, visited | bitMask, path);
-                        }
+                // Base case: reached end of path
+                if (move == TOTAL_MOVES) {
+                    if (position == END_POS) {
+                        addPaths(multiplicity);
                     }
+                    return nodes;
                 }
-            } else {
-                int dir = getDirectionIndex(currentMove);
-                int newX = x + DX[dir];
-                int newY = y + DY[dir];
-
-                long pos = (long) newX * GRID_SIZE + newY;
-                long bitMask = 1L << pos;
 
-                if (isValid(newX, newY) && (visited & bitMask) == 0) {
-                    if (moveIndex == TOTAL_MOVES - 1 && (newX != GRID_SIZE - 1 || newY != 0)) {
-                        return;
-                    }
-                    explorePaths(newX, newY, moveIndex + 1, visited | bitMask, path);
+                // The candidates already exclude visited cells and cells infeasible at the next step,
+                // which also reserves the end position for the last move
+                long candidates = MoveGenerator.candidates(pattern, move, position, seen);
+                if (PruneStats.ENABLED) {
+                    PruneStats.node(move, MoveGenerator.candidates(position, seen, pattern.moveAt(move)), candidates);
+                }
+                if (candidates == 0) {
+                    return nodes;
+                }
+                if (SplitPolicy.isBranchPoint(candidates)) {
+                    return nodes + branch(position, move, seen, candidates);
                 }
-            }
 
-            if (!subtasks.isEmpty()) {
-                invokeAll(subtasks.getAll());
+                // A forced move is followed in this loop, only branch points may fork
+                position = Long.numberOfTrailingZeros(candidates);
+                seen |= candidates;
+                move++;
             }
         }
-    }
 
-    private static boolean canReachEnd(int x, int y, int movesLeft, long visited) {
-        // If not enough moves left to reach the end point
-        int minMovesToEnd = Math.abs(x - (GRID_SIZE - 1)) + Math.abs(y);
-        if (minMovesToEnd > movesLeft) {
-            return false;
-        }
+        // Runs a branch point on the kernel or forks one task per candidate, returns the nodes below it
+        private long branch(int position, int move, long seen, long candidates) {
+            // Once this worker has enough queued work the whole subtree runs on its kernel
+            if (!SplitPolicy.shouldSplit(move)) {
+                if (useLaneKernel) {
+                    LaneKernel kernel = laneKernels.get();
+                    long before = kernel.nodes();
+                    addPaths(multiplicity * kernel.count(pattern, position, move, seen));
+                    return kernel.nodes() - before;
+                }
+                SearchKernel kernel = kernels.get();
+                long before = kernel.nodes();
+                addPaths(multiplicity * kernel.count(pattern, search.table, position, move, seen));
+                return kernel.nodes() - before;
+            }
 
-        // If too many moves left compared to unvisited cells
-        int unvisitedCells = GRID_SIZE * GRID_SIZE - Long.bitCount(visited);
-        if (movesLeft > unvisitedCells) {
-            return false;
+            TaskQueue subtasks = new TaskQueue();
+            while (candidates != 0) {
+                int next = Long.numberOfTrailingZeros(candidates);
+                long bitMask = candidates & -candidates;
+                candidates &= candidates - 1;
+                subtasks.add(new PathExplorer(next / GRID_SIZE, next % GRID_SIZE, move + 1,
+                        seen | bitMask, pattern, multiplicity, statePaths, search));
+            }
+            EngineEvents.taskForked(ENGINE, move, subtasks.size());
+            invokeAll(subtasks.getAll());
+            return 0;
         }
-
-        // Check if we've created an enclosed unvisited area
-        return !hasIsolatedUnvisitedCells(x, y, visited);
     }
 
-    private static void showProgress() {
-        long currentTime = System.currentTimeMillis();
-        if (currentTime - lastUpdateTime >= UPDATE_INTERVAL) {
-            long elapsedSeconds = (currentTime - startTime) / 1000;
-            System.out.printf("\rPaths found: %,d, Time elapsed: %ds, Paths/second: %,d",
-                    totalPaths.get(), elapsedSeconds,
-                    elapsedSeconds > 0 ? totalPaths.get() / elapsedSeconds : 0);
-            lastUpdateTime = currentTime;
+    /**
+     * Runs the search once per distinct state of a slot range of the merged frontier.
+     */
+    public static class FrontierTask extends RecursiveAction {
+        private final StateTable states;
+        private final int from, to;
+        private final CompiledPattern pattern;
+        private final int moveIndex;
+        private final Search search;
+
+        public FrontierTask(StateTable states, int from, int to, CompiledPattern pattern, int moveIndex, Search search) {
+            this.states = states;
+            this.from = from;
+            this.to = to;
+            this.pattern = pattern;
+            this.moveIndex = moveIndex;
+            this.search = search;
         }
-    }
 
-    private static boolean hasIsolatedUnvisitedCells(int currentX, int currentY, long visited) {
-        if (Long.bitCount(visited) > GRID_SIZE * GRID_SIZE - 10) {
-            boolean[][] grid = new boolean[GRID_SIZE][GRID_SIZE];
-            for (int i = 0; i < GRID_SIZE; i++) {
-                for (int j = 0; j < GRID_SIZE; j++) {
-                    grid[i][j] = (visited & (1L << (i * GRID_SIZE + j))) != 0;
-                }
+        @Override
+        protected void compute() {
+            if (to - from > FRONTIER_SLOTS_PER_TASK) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new FrontierTask(states, from, mid, pattern, moveIndex, search),
+                        new FrontierTask(states, mid, to, pattern, moveIndex, search));
+                return;
             }
-
-            for (int i = 0; i < GRID_SIZE; i++) {
-                for (int j = 0; j < GRID_SIZE; j++) {
-                    if (!grid[i][j] && (i != currentX || j != currentY)) {
-                        int accessibleNeighbors = 0;
-                        for (int dir = 0; dir < 4; dir++) {
-                            int newX = i + DX[dir];
-                            int newY = j + DY[dir];
-                            if (isValid(newX, newY) && !grid[newX][newY]) {
-                                accessibleNeighbors++;
-                            }
-                        }
-                        if (accessibleNeighbors == 0) {
-                            return true;
-                        }
-                    }
+            for (int slot = from; slot < to; slot++) {
+                if (!states.isOccupied(slot)) continue;
+                int pos = states.positionAt(slot);
+                long visited = states.visitedAt(slot);
+                LongAdder statePaths = search.checkpoint != null ? new LongAdder() : null;
+                new PathExplorer(pos / GRID_SIZE, pos % GRID_SIZE, moveIndex, visited,
+                        pattern, states.countAt(slot), statePaths, search).compute();
+                if (statePaths != null) {
+                    search.checkpoint.record(pos, visited, statePaths.sum());
+                }
+                if (search.progress != null) {
+                    search.progress.subtreesDone(1);
                 }
             }
         }
-        return false;
     }
 
-    private static boolean isValid(int x, int y) {
-        return x >= 0 && x < GRID_SIZE && y >= 0 && y < GRID_SIZE;
+    /**
+     * Counts one validated pattern as main does, on the profile DP when it suits the pattern and the
+     * frontier search otherwise, without progress output, transposition table, checkpoint or result
+     * store. Safe to call concurrently, every call counts on its own search.
+     */
+    static long countPaths(String path, ForkJoinPool pool) {
+        if (ProfileDP.isSuitable(path)) {
+            return ProfileDP.countPaths(path, pool);
+        }
+        return countPaths(path, pool, FRONTIER_DEPTH, null);
     }
 
-    private static int getDirectionIndex(char direction) {
-        return switch (direction) {
-            case 'D' -> 0;
-            case 'U' -> 1;
-            case 'R' -> 2;
-            case 'L' -> 3;
-            default -> -1;
-        };
+    /**
+     * Always the frontier search, merged to frontierDepth moves, with an optional, already cleared,
+     * table that no other search is using.
+     */
+    static long countPaths(String path, ForkJoinPool pool, int frontierDepth, TranspositionTable table) {
+        CompiledPattern pattern = CompiledPattern.compile(path);
+        if (!pattern.canMatch()) {
+            return 0;
+        }
+        Search search = new Search(pool, table);
+        FrontierExpansion frontier = FrontierExpansion.expand(pattern, frontierDepth);
+        StateTable states = frontier.states();
+        FrontierTask rootTask = new FrontierTask(states, 0, states.capacity(), pattern, frontier.depth(), search);
+        pool.execute(rootTask);
+        rootTask.join();
+        return search.paths();
     }
 
-    private static void explorePaths(int x, int y, int moveIndex, long visited, String path) {
-        if (moveIndex == TOTAL_MOVES) {
-            if (x == GRID_SIZE - 1 && y == 0) {
-                totalPaths.incrementAndGet();
-            }
-            return;
+    private static boolean canReachEnd(int position, int movesLeft, long visited) {
+        if (PruneStats.ENABLED) {
+            return PruneStats.canReachEnd(position, movesLeft, visited);
         }
 
-        char currentMove = path.charAt(moveIndex);
+        // If not enough moves left to reach the end point
+        int minMovesToEnd = Math.abs(position / GRID_SIZE - (GRID_SIZE - 1)) + Math.abs(position % GRID_SIZE);
+        if (minMovesToEnd > movesLeft) {
+            return false;
+        }
 
-        if (currentMove == '*') {
-            for (int dir = 0; dir < 4; dir++) {
-                int newX = x + DX[dir];
-                int newY = y + DY[dir];
+        // If too many moves left compared to unvisited cells
+        int unvisitedCells = GRID_SIZE * GRID_SIZE - Long.bitCount(visited);
+        if (movesLeft > unvisitedCells) {
+            return false;
+        }
 
-                long pos = (long) newX * GRID_SIZE + newY;
-                long bitMask = 1L << pos;
+        // Check if we've created a dead cell or cut the unvisited area in two
+        return Bitboard.canComplete(visited, position, END_POS);
+    }
 
-                if (isValid(newX, newY) && (visited & bitMask) == 0) {
-                    if (moveIndex == TOTAL_MOVES - 1 && (newX != GRID_SIZE - 1 || newY != 0)) {
-                        continue;
-                    }
-                    explorePaths(newX, newY, moveIndex + 1, visited | bitMask, path);
-                }
+    // Frontier states that the checkpoint does not list as finished
+    private static StateTable skipFinishedStates(StateTable states, Checkpoint checkpoint) {
+        StateTable remaining = new StateTable(states.size());
+        for (int slot = 0; slot < states.capacity(); slot++) {
+            if (states.isOccupied(slot) && !checkpoint.isFinished(states.positionAt(slot), states.visitedAt(slot))) {
+                remaining.add(states.positionAt(slot), states.visitedAt(slot), states.countAt(slot));
             }
-        } else {
-            int dir = getDirectionIndex(currentMove);
-            int newX = x + DX[dir];
-            int newY = y + DY[dir];
-
-            long pos = (long) newX * GRID_SIZE + newY;
-            long bitMask = 1L << pos;
+        }
+        return remaining;
+    }
 
-            if (isValid(newX, newY) && (visited & bitMask) == 0) {
-                if (moveIndex == TOTAL_MOVES - 1 && (newX != GRID_SIZE - 1 || newY != 0)) {
-                    return;
-                }
-                explorePaths(newX, newY, moveIndex + 1, visited | bitMask, path);
+    // A failed write is reported but does not stop the search, the previous checkpoint stays valid
+    private static void writeCheckpoint(boolean force) {
+        if (checkpoint == null) {
+            return;
+        }
+        try {
+            if (force) {
+                checkpoint.flush();
+            } else {
+                checkpoint.flushIfDue();
             }
+        } catch (IOException e) {
+            System.out.println("\nCheckpoint write to " + checkpoint.file() + " failed: " + e.getMessage());
         }
     }
 
@@ -239,25 +323,88 @@ public class TotalPath {
         System.out.println("\nUsing " + processors + " processor threads");
         ForkJoinPool pool = ForkJoinPool.commonPool();
 
+        long tableMegabytes = Long.getLong("totalpath.tt.mb", 0);
+        if (tableMegabytes > 0) {
+            transpositionTable = new TranspositionTable(tableMegabytes << 20);
+            System.out.println("Transposition table enabled: " + (transpositionTable.memoryBytes() >> 20) + " MB");
+        }
+
         // Start timing
+        totalPaths.reset();  // Repeated runs in one JVM start from zero
         startTime = System.currentTimeMillis();
-        lastUpdateTime = startTime;
 
-        System.out.println("Starting parallel path exploration...\n");
+        CompiledPattern pattern = CompiledPattern.compile(path);
+        boolean showBreakdown = false;
+        boolean storeResult = true;
+        long storedCount = -1;
+        String storeFile = System.getProperty("totalpath.store");
+        if (storeFile != null) {
+            try {
+                resultStore = ResultStore.open(Path.of(storeFile));
+                storedCount = resultStore.get(path);
+            } catch (IOException e) {
+                System.out.println("Result store unavailable: " + e.getMessage());
+                resultStore = null;
+            }
+        }
 
-        // Start parallel processing
-        long initialVisited = 1L;
-        PathExplorer rootTask = new PathExplorer(0, 0, 0, initialVisited, path);
-        pool.execute(rootTask);
+        int wildcardTail = TOTAL_MOVES - ProfileDP.wildcardTailStart(path);
+        if (storedCount >= 0) {
+            // Counted by an earlier run, possibly of the mirror pattern
+            System.out.println("Answered from result store " + storeFile + "\n");
+            totalPaths.add(storedCount);
+            storeResult = false;
+        } else if (!pattern.canMatch()) {
+            // No cell sequence satisfies the fixed moves, so there is nothing to search
+            System.out.println("Pattern can never match, skipping search\n");
+        } else if (ProfileDP.isSuitable(path)) {
+            // A long all-'*' tail is a Hamiltonian path count, which the profile DP answers directly
+            System.out.println("Starting profile DP for a wildcard tail of " + wildcardTail + " moves...\n");
+            totalPaths.add(ProfileDP.countPaths(path, pool));
+        } else {
+            TreeSizeEstimator.Estimate estimate = TreeSizeEstimator.estimate(path, TreeSizeEstimator.Engine.FRONTIER_SEARCH);
+            System.out.printf("Estimated search: %.2e nodes, about %,d ms%n", estimate.nodes(),
+                    estimate.millis(pool.getParallelism()));
+            System.out.println("Starting parallel path exploration...\n");
+
+            // Merge the prefixes that reach the same state, then search each distinct state once
+            FrontierExpansion frontier = FrontierExpansion.expand(pattern, FRONTIER_DEPTH);
+            int depth = frontier.depth();
+            System.out.printf("Frontier at move %d: %,d prefixes merged into %,d states (ratio %.2f)%n%n",
+                    depth, frontier.prefixesAt(depth), frontier.statesAt(depth), frontier.mergeRatioAt(depth));
+
+            StateTable states = frontier.states();
+            String checkpointFile = System.getProperty("totalpath.checkpoint");
+            if (checkpointFile != null) {
+                checkpoint = new Checkpoint(Path.of(checkpointFile), path, depth,
+                        Long.getLong("totalpath.checkpoint.seconds", 60) * 1000);
+                try {
+                    if (checkpoint.load()) {
+                        states = skipFinishedStates(states, checkpoint);
+                        totalPaths.add(checkpoint.finishedPaths());
+                        System.out.printf("Resuming from %s: %,d states already finished, %,d paths%n%n",
+                                checkpointFile, checkpoint.finishedStates(), checkpoint.finishedPaths());
+                    }
+                } catch (IOException e) {
+                    System.out.println("Cannot resume: " + e.getMessage());
+                    scanner.close();
+                    return;
+                }
+            }
 
-        // Show progress while computing
-        while (!rootTask.isDone()) {
-            showProgress();
-            try {
-                Thread.sleep(100);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                break;
+            // Start parallel processing, the progress thread writes the checkpoint while this one waits
+            progress = QueryProgress.start(ENGINE, path, pool, totalPaths::sum, () -> writeCheckpoint(false));
+            progress.setTotalSubtrees(states.size());
+            Search search = new Search(totalPaths, transpositionTable, checkpoint, progress);
+            FrontierTask rootTask = new FrontierTask(states, 0, states.capacity(), pattern, depth, search);
+            pool.execute(rootTask);
+            showBreakdown = true;
+            boolean finished = progress.await(rootTask);
+            progress.close();
+            if (finished) {
+                writeCheckpoint(true);
+            } else {
+                storeResult = false;
             }
         }
 
@@ -266,10 +413,41 @@ public class TotalPath {
 
         // Show final results
         System.out.println("\n\nFinal Results:");
-        System.out.println("Total paths: " + totalPaths.get());
+        System.out.println("Total paths: " + totalPaths.sum());
         System.out.println("Time (ms): " + totalTime);
         System.out.printf("Average paths per second: %,.2f%n",
-                (totalPaths.get() * 1000.0) / totalTime);
+                (totalPaths.sum() * 1000.0) / totalTime);
+        if (showBreakdown) {
+            System.out.println(totalPaths.breakdown());
+        }
+        if (PruneStats.ENABLED) {
+            System.out.println(PruneStats.report());
+            String statsFile = System.getProperty("totalpath.stats.csv");
+            if (statsFile != null) {
+                try {
+                    PruneStats.exportCsv(Path.of(statsFile));
+                } catch (IOException e) {
+                    System.out.println("Statistics export to " + statsFile + " failed: " + e.getMessage());
+                }
+            }
+        }
+        if (transpositionTable != null) {
+            System.out.println(transpositionTable.stats());
+        }
+        if (checkpoint != null) {
+            System.out.println(checkpoint.stats());
+        }
+        if (resultStore != null) {
+            try {
+                if (storeResult) {
+                    resultStore.put(path, totalPaths.sum());
+                }
+                System.out.println(resultStore.stats());
+                resultStore.close();
+            } catch (IOException e) {
+                System.out.println("Result store write failed: " + e.getMessage());
+            }
+        }
 
         scanner.close();
     }
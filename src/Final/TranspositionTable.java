@@ -0,0 +1,193 @@
+package Final;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Shared memo of subtree path counts keyed on (position, visited bitmask).
+ * The move index is implied by the visited bitmask, so one table is valid for exactly one pattern
+ * and has to be cleared before a different pattern is searched.
+ *
+ * The table lives off-heap in a fixed-size direct buffer and is lock-free: every entry is three
+ * longs (check, meta, count) where check = visited ^ meta ^ count. A writer first overwrites the
+ * check word with its complement, then stores meta and count, then publishes the check word with
+ * release. A reader loads the check word with acquire, then meta and count, then the check word
+ * again: an entry that changed in between, or whose words do not XOR back to the key, is a miss.
+ * This catches a read overlapping one write, but two writers storing to the same slot at once can
+ * still interleave their words; such an entry is only rejected because a mixed (check, meta, count)
+ * is unlikely to XOR back to a valid key, so a false hit is improbable rather than impossible.
+ */
+public class TranspositionTable {
+    private static final int ENTRY_BYTES = 3 * Long.BYTES;
+    private static final int BUCKET_SIZE = 4;                  // Slots probed per lookup
+    private static final long MAX_ENTRIES = 1L << 26;          // Keeps the buffer under 2GB
+    private static final long MIN_ENTRIES = BUCKET_SIZE;
+
+    private static final long OCCUPIED = 1L << 16;             // Set in meta for every used slot
+    private static final VarHandle LONGS =
+            MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+
+    private final ByteBuffer buffer;
+    private final int mask;
+
+    // Statistics for sizing the table per machine
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder stores = new LongAdder();
+    private final LongAdder replacements = new LongAdder();
+    private final LongAdder rejections = new LongAdder();
+
+    /**
+     * Creates a table using at most memoryBudgetBytes of off-heap memory.
+     */
+    public TranspositionTable(long memoryBudgetBytes) {
+        long entries = Math.min(MAX_ENTRIES, Math.max(MIN_ENTRIES, memoryBudgetBytes / ENTRY_BYTES));
+        entries = Long.highestOneBit(entries);
+        this.buffer = ByteBuffer.allocateDirect((int) (entries * ENTRY_BYTES));
+        this.mask = (int) entries - 1;
+    }
+
+    /**
+     * Returns the stored path count for (pos, visited), or -1 if the state is not in the table.
+     */
+    public long probe(int pos, long visited) {
+        int slot = index(pos, visited);
+        for (int i = 0; i < BUCKET_SIZE; i++) {
+            int offset = ((slot + i) & mask) * ENTRY_BYTES;
+            long check = (long) LONGS.getAcquire(buffer, offset);
+            long meta = (long) LONGS.getOpaque(buffer, offset + Long.BYTES);
+            if (meta == 0) {
+                break;
+            }
+            long count = (long) LONGS.getOpaque(buffer, offset + 2 * Long.BYTES);
+            // Meta and count must not be read after the second check word load
+            VarHandle.loadLoadFence();
+            if ((check ^ meta ^ count) == visited && positionOf(meta) == pos
+                    && (long) LONGS.getOpaque(buffer, offset) == check) {
+                hits.increment();
+                return count;
+            }
+        }
+        misses.increment();
+        return -1;
+    }
+
+    /**
+     * Records the path count of the subtree rooted at (pos, visited), reached after moveIndex moves.
+     * When the bucket is full the entry with the smallest remaining subtree (largest move index)
+     * is replaced, and only if the new entry covers at least as much work.
+     */
+    public void store(int pos, long visited, int moveIndex, long count) {
+        long meta = OCCUPIED | ((long) moveIndex << 8) | pos;
+        int slot = index(pos, visited);
+        int victim = -1;
+        int victimMoveIndex = -1;
+
+        for (int i = 0; i < BUCKET_SIZE; i++) {
+            int offset = ((slot + i) & mask) * ENTRY_BYTES;
+            long existingMeta = (long) LONGS.getOpaque(buffer, offset + Long.BYTES);
+            if (existingMeta == 0) {
+                victim = offset;
+                victimMoveIndex = Integer.MAX_VALUE;
+                break;
+            }
+            long existingCount = (long) LONGS.getOpaque(buffer, offset + 2 * Long.BYTES);
+            long existingCheck = (long) LONGS.getOpaque(buffer, offset);
+            if ((existingCheck ^ existingMeta ^ existingCount) == visited && positionOf(existingMeta) == pos) {
+                return;  // Already known, counts for the same state never differ
+            }
+            int existingMoveIndex = moveIndexOf(existingMeta);
+            if (existingMoveIndex > victimMoveIndex) {
+                victim = offset;
+                victimMoveIndex = existingMoveIndex;
+            }
+        }
+
+        if (victimMoveIndex < moveIndex) {
+            rejections.increment();
+            return;
+        }
+        if (victimMoveIndex != Integer.MAX_VALUE) {
+            replacements.increment();
+        }
+
+        // The complement never matches: it XORs back to ~visited, which does not contain pos
+        long check = visited ^ meta ^ count;
+        LONGS.setOpaque(buffer, victim, ~check);
+        VarHandle.storeStoreFence();
+        LONGS.setOpaque(buffer, victim + Long.BYTES, meta);
+        LONGS.setOpaque(buffer, victim + 2 * Long.BYTES, count);
+        LONGS.setRelease(buffer, victim, check);
+        stores.increment();
+    }
+
+    /**
+     * Empties the table so it can be reused for another pattern. Not safe during a search.
+     */
+    public void clear() {
+        for (int offset = 0; offset < buffer.capacity(); offset += Long.BYTES) {
+            buffer.putLong(offset, 0L);
+        }
+        hits.reset();
+        misses.reset();
+        stores.reset();
+        replacements.reset();
+        rejections.reset();
+    }
+
+    public long capacity() {
+        return (long) mask + 1;
+    }
+
+    public long memoryBytes() {
+        return buffer.capacity();
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+
+    public double hitRate() {
+        long h = hits.sum();
+        long total = h + misses.sum();
+        return total == 0 ? 0.0 : (double) h / total;
+    }
+
+    // Fraction of slots in use, computed by scanning the table
+    public double occupancy() {
+        long used = 0;
+        for (int offset = 0; offset < buffer.capacity(); offset += ENTRY_BYTES) {
+            if ((long) LONGS.getOpaque(buffer, offset + Long.BYTES) != 0) {
+                used++;
+            }
+        }
+        return (double) used / capacity();
+    }
+
+    public String stats() {
+        return String.format("Transposition table: %,d entries (%,d MB), hit rate %.2f%% (%,d hits, %,d misses), " +
+                        "occupancy %.2f%%, %,d stores, %,d replacements, %,d rejected",
+                capacity(), memoryBytes() >> 20, hitRate() * 100, hits(), misses(),
+                occupancy() * 100, stores.sum(), replacements.sum(), rejections.sum());
+    }
+
+    private int index(int pos, long visited) {
+        long h = (visited ^ ((long) pos << 58)) * 0x9E3779B97F4A7C15L;
+        return (int) (h >>> 32) & mask;
+    }
+
+    private static int positionOf(long meta) {
+        return (int) (meta & 0xFF);
+    }
+
+    private static int moveIndexOf(long meta) {
+        return (int) ((meta >>> 8) & 0xFF);
+    }
+}
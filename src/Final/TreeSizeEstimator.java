@@ -0,0 +1,191 @@
+package Final;
+
+import java.util.SplittableRandom;
+
+/**
+ * Knuth's random-probe estimate of the search tree of a pattern.
+ * A probe walks from the root to a leaf picking one child uniformly at every node; the product of the
+ * branching factors met so far is an unbiased estimate of the node count of each depth, and their sum
+ * of the whole tree. Averaging the probes gives the node count, the paths (the weight of probes that
+ * reach the end) and, with a nodes per second rate, the expected search time.
+ *
+ * The children are generated with the pruning of the engine being predicted, so the estimate counts
+ * the nodes that engine visits:
+ * - PLAIN: bounds and visited cells only, like singlethread
+ * - KERNEL: feasibility masks and canReachEnd, counted like SearchKernel.nodes()
+ * Every Engine pairs its pruning with its own rate of estimated nodes per second; Final.TotalPath
+ * searches the KERNEL tree too, but through tasks and frontier merging, at its own speed.
+ *
+ * The estimator is unbiased but heavy-tailed, so a single estimate tends to come out low. With at
+ * least MIN_PROBES probes the node estimate was mostly within 0.4-2x of the exact SearchKernel count
+ * on the corpus and on generated patterns, median about 0.85x, with rare runs up to 5x off.
+ */
+public final class TreeSizeEstimator {
+    private static final int GRID_SIZE = 8;
+    private static final int TOTAL_MOVES = 63;
+    private static final int START_POS = 0;
+    private static final int END_POS = (GRID_SIZE - 1) * GRID_SIZE;
+
+    public static final int DEFAULT_PROBES = 16_384;
+    public static final long DEFAULT_BUDGET_NANOS = 20_000_000;
+    // Probes always run, however tight the time budget; fewer were off by 10x and more in either direction
+    private static final int MIN_PROBES = 4_096;
+
+    public enum Pruning {
+        PLAIN,
+        KERNEL
+    }
+
+    /**
+     * The engines estimates are made for, with the pruning they search under.
+     */
+    public enum Engine {
+        SINGLETHREAD(Pruning.PLAIN, 40_000_000),
+        SEARCH_KERNEL(Pruning.KERNEL, 10_000_000),
+        // Final.TotalPath: 4-10M/s on trees below 1e7 nodes, 20M/s on one of 2.6e7 where merging saved most
+        FRONTIER_SEARCH(Pruning.KERNEL, 8_000_000);
+
+        final Pruning pruning;
+        // Single-thread estimated nodes per second, override with -Destimator.nodes.per.second
+        final long nodesPerSecond;
+
+        Engine(Pruning pruning, long nodesPerSecond) {
+            this.pruning = pruning;
+            this.nodesPerSecond = nodesPerSecond;
+        }
+
+        long rate() {
+            return Long.getLong("estimator.nodes.per.second", nodesPerSecond);
+        }
+    }
+
+    /**
+     * Averaged probe results; relativeError is the standard error of the node estimate over its mean.
+     */
+    public record Estimate(double nodes, double paths, double relativeError, int probes, long nodesPerSecond) {
+        // Expected search time with the given number of worker threads
+        public long millis(int threads) {
+            return (long) (nodes * 1000.0 / nodesPerSecond / Math.max(1, threads));
+        }
+
+        // The same tree searched by another engine with the same pruning
+        public Estimate on(Engine engine) {
+            return new Estimate(nodes, paths, relativeError, probes, engine.rate());
+        }
+
+        @Override
+        public String toString() {
+            return String.format("~%.3g nodes (+/- %.0f%%), ~%.3g paths, ~%,d ms on one thread, %d probes",
+                    nodes, relativeError * 100, paths, millis(1), probes);
+        }
+    }
+
+    private TreeSizeEstimator() {
+    }
+
+    /**
+     * Estimates with the default probe count and time budget.
+     */
+    public static Estimate estimate(String path, Engine engine) {
+        return estimate(path, engine, DEFAULT_PROBES, DEFAULT_BUDGET_NANOS, System.nanoTime());
+    }
+
+    /**
+     * Runs up to maxProbes probes, stopping early once budgetNanos have passed and MIN_PROBES are done.
+     */
+    public static Estimate estimate(String path, Engine engine, int maxProbes, long budgetNanos, long seed) {
+        CompiledPattern pattern = CompiledPattern.compile(path);
+        Pruning pruning = engine.pruning;
+        long rate = engine.rate();
+        if (pruning == Pruning.KERNEL && !pattern.canMatch()) {
+            return new Estimate(0, 0, 0, 0, rate);
+        }
+
+        SplittableRandom random = new SplittableRandom(seed);
+        long start = System.nanoTime();
+        double sum = 0, sumSquares = 0, paths = 0;
+        int probes = 0;
+        while (probes < maxProbes && (probes < MIN_PROBES || System.nanoTime() - start < budgetNanos)) {
+            double[] probe = probe(pattern, pruning, random);
+            sum += probe[0];
+            sumSquares += probe[0] * probe[0];
+            paths += probe[1];
+            probes++;
+        }
+
+        double mean = sum / probes;
+        double variance = Math.max(0, sumSquares / probes - mean * mean);
+        double relativeError = mean > 0 ? Math.sqrt(variance / probes) / mean : 0;
+        return new Estimate(mean, paths / probes, relativeError, probes, rate);
+    }
+
+    // One root-to-leaf walk: {estimated nodes, estimated paths}; also the sample of ApproximateCount
+    static double[] probe(CompiledPattern pattern, Pruning pruning, SplittableRandom random) {
+        int pos = START_POS;
+        long visited = 1L << START_POS;
+        double weight = 1;
+        double nodes = 1;
+
+        for (int moveIndex = 0; moveIndex < TOTAL_MOVES; moveIndex++) {
+            long children = children(pattern, pruning, moveIndex, pos, visited);
+            int branching = Long.bitCount(children);
+            if (branching == 0) {
+                return new double[]{nodes, 0};
+            }
+            weight *= branching;
+            nodes += weight;
+
+            // Pick the k-th child
+            for (int k = random.nextInt(branching); k > 0; k--) {
+                children &= children - 1;
+            }
+            pos = Long.numberOfTrailingZeros(children);
+            visited |= 1L << pos;
+        }
+        return new double[]{nodes, pos == END_POS ? weight : 0};
+    }
+
+    // The children a node of the predicted engine goes on to visit
+    private static long children(CompiledPattern pattern, Pruning pruning, int moveIndex, int pos, long visited) {
+        if (pruning == Pruning.PLAIN) {
+            return MoveGenerator.candidates(pos, visited, pattern.moveAt(moveIndex));
+        }
+        long candidates = MoveGenerator.candidates(pattern, moveIndex, pos, visited);
+        if (moveIndex + 1 == TOTAL_MOVES) {
+            return candidates;
+        }
+        long kept = 0;
+        for (long rest = candidates; rest != 0; rest &= rest - 1) {
+            long bit = rest & -rest;
+            int next = Long.numberOfTrailingZeros(bit);
+            if (SearchKernel.lookAhead(next, TOTAL_MOVES - moveIndex - 1, visited | bit)) {
+                kept |= bit;
+            }
+        }
+        return kept;
+    }
+
+    /**
+     * Compares the estimates with the exact SearchKernel node counts of the corpus patterns.
+     */
+    public static void main(String[] args) {
+        SearchKernel kernel = new SearchKernel();
+        for (String path : PatternCorpus.PATTERNS) {
+            CompiledPattern pattern = CompiledPattern.compile(path);
+            long before = kernel.nodes();
+            long start = System.nanoTime();
+            long paths = pattern.canMatch() ? kernel.count(pattern, null, START_POS, 0, 1L << START_POS) : 0;
+            long searchMillis = (System.nanoTime() - start) / 1_000_000;
+            long nodes = kernel.nodes() - before;
+
+            start = System.nanoTime();
+            Estimate estimate = estimate(path, Engine.SEARCH_KERNEL);
+            long estimateMicros = (System.nanoTime() - start) / 1000;
+
+            System.out.println(path);
+            System.out.printf("  exact:    %,d nodes, %,d paths, %,d ms%n", nodes, paths, searchMillis);
+            System.out.printf("  estimate: %s, in %,d us (ratio %.2f)%n", estimate, estimateMicros,
+                    nodes > 0 ? estimate.nodes() / nodes : 0);
+        }
+    }
+}
@@ -1,3 +1,10 @@
+import Final.CompiledPattern;
+import Final.EngineEvents;
+import Final.QueryProgress;
+import Final.SearchKernel;
+import Final.SplitPolicy;
+import Final.StripedCounter;
+
 import java.util.Scanner;
 import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.ForkJoinTask;
@@ -10,32 +17,56 @@ public class Parallel_optimize {
     // Constants for grid dimensions
     private static final int GRID_SIZE = 8;
     private static final int TOTAL_MOVES = 63;
-    private static final int PARALLEL_THRESHOLD = 8; // Adjusted threshold for parallelization
+    private static final String ENGINE = "Parallel_optimize";
 
     // Progress tracking variables
     private static long startTime = 0;
-    private static long lastUpdateTime = 0;
-    private static final long UPDATE_INTERVAL = 1000;
+    private static QueryProgress progress = null;
+    // Paths of the tasks that did not fork, so the total is known before the root task returns; the search
+    // runs on the common pool, whose workers each add to their own stripe
+    private static final StripedCounter pathsFound = new StripedCounter(ForkJoinPool.commonPool());
 
     // Possible movement directions
     private static final int[] DX = {1, -1, 0, 0};  // Down, Up, Right, Left
     private static final int[] DY = {0, 0, 1, -1};
 
+    // Once a worker has enough queued work its subtree runs on the iterative kernel instead of one task per move
+    private static final ThreadLocal<SearchKernel> kernels = ThreadLocal.withInitial(SearchKernel::new);
+
     private static class PathFinder extends RecursiveTask<Long> {
         private final int x, y, moveIndex;
         private final long visited;
-        private final String path;
+        private final CompiledPattern path;
+        private double share;  // Part of the root's subtree this task covers, split evenly at every fork
+        private long nodes;  // Nodes searched by this task and its inline moves, without forked children
+        private boolean forked;
 
-        public PathFinder(int x, int y, int moveIndex, long visited, String path) {
+        public PathFinder(int x, int y, int moveIndex, long visited, CompiledPattern path, double share) {
             this.x = x;
             this.y = y;
             this.moveIndex = moveIndex;
             this.visited = visited;
             this.path = path;
+            this.share = share;
         }
 
         @Override
         protected Long compute() {
+            EngineEvents.TaskExecuted event = EngineEvents.taskStarted();
+            long paths = explore();
+            EngineEvents.taskFinished(event, ENGINE, moveIndex, nodes);
+            if (!forked) {
+                // The whole subtree was searched by this task
+                pathsFound.add(paths);
+                if (progress != null) {
+                    progress.subtreesDone(share);
+                }
+            }
+            return paths;
+        }
+
+        private long explore() {
+            nodes++;
             // Base case: reached end of path
             if (moveIndex == TOTAL_MOVES) {
                 return (x == GRID_SIZE - 1 && y == 0) ? 1L : 0L;
@@ -46,19 +77,24 @@ public class Parallel_optimize {
                 return 0L;
             }
 
-            char currentMove = path.charAt(moveIndex);
+            char currentMove = path.path().charAt(moveIndex);
 
             // Handle single direction moves
             if (currentMove != '*') {
                 return processDirectionalMove(currentMove);
             }
 
-            // Handle wildcard moves with potential parallelization
-            if (moveIndex <= PARALLEL_THRESHOLD) {
-                return processWildcardMoveParallel();
-            } else {
-                return processWildcardMoveSequential();
+            // Only wildcard branch points fork, and only while this worker is short of queued tasks
+            if (!SplitPolicy.shouldSplit(moveIndex)) {
+                SearchKernel kernel = kernels.get();
+                long before = kernel.nodes();
+                long paths = kernel.count(path, null, x * GRID_SIZE + y, moveIndex, visited);
+                nodes += kernel.nodes() - before;
+                return paths;
             }
+
+            // Handle wildcard moves in parallel
+            return processWildcardMoveParallel();
         }
 
         private Long processDirectionalMove(char move) {
@@ -78,7 +114,11 @@ public class Parallel_optimize {
                 return 0L;
             }
 
-            return new PathFinder(newX, newY, moveIndex + 1, visited | bitMask, path).compute();
+            PathFinder next = new PathFinder(newX, newY, moveIndex + 1, visited | bitMask, path, share);
+            long paths = next.explore();
+            nodes += next.nodes;
+            forked = next.forked;
+            return paths;
         }
 
         private Long processWildcardMoveParallel() {
@@ -100,38 +140,19 @@ public class Parallel_optimize {
                     continue;
                 }
 
-                subtasks.add(new PathFinder(newX, newY, moveIndex + 1, visited | bitMask, path));
+                subtasks.add(new PathFinder(newX, newY, moveIndex + 1, visited | bitMask, path, 0));
             }
+            for (PathFinder subtask : subtasks) {
+                subtask.share = share / subtasks.size();
+            }
+            forked = !subtasks.isEmpty();
 
+            EngineEvents.taskForked(ENGINE, moveIndex, subtasks.size());
             return ForkJoinTask.invokeAll(subtasks)
                     .stream()
                     .mapToLong(ForkJoinTask::join)
                     .sum();
         }
-
-        private Long processWildcardMoveSequential() {
-            long totalPaths = 0;
-
-            for (int dir = 0; dir < 4; dir++) {
-                int newX = x + DX[dir];
-                int newY = y + DY[dir];
-
-                if (!isValid(newX, newY)) continue;
-
-                long pos = (long) newX * GRID_SIZE + newY;
-                long bitMask = 1L << pos;
-
-                if ((visited & bitMask) != 0) continue;
-
-                if (moveIndex == TOTAL_MOVES - 1 && (newX != GRID_SIZE - 1 || newY != 0)) {
-                    continue;
-                }
-
-                totalPaths += new PathFinder(newX, newY, moveIndex + 1, visited | bitMask, path).compute();
-            }
-
-            return totalPaths;
-        }
     }
 
     private static boolean canReachEnd(int x, int y, int movesLeft, long visited) {
@@ -165,17 +186,6 @@ public class Parallel_optimize {
         return path.matches("[UDLR*]+");
     }
 
-    private static void showProgress(long paths) {
-        long currentTime = System.currentTimeMillis();
-        if (currentTime - lastUpdateTime >= UPDATE_INTERVAL) {
-            long elapsedSeconds = (currentTime - startTime) / 1000;
-            System.out.printf("\rPaths found: %,d, Time elapsed: %ds, Paths/second: %,d",
-                    paths, elapsedSeconds,
-                    elapsedSeconds > 0 ? paths / elapsedSeconds : 0);
-            lastUpdateTime = currentTime;
-        }
-    }
-
     public static void main(String[] args) {
         Scanner scanner = new Scanner(System.in);
         System.out.print("Input:\n");
@@ -187,17 +197,24 @@ public class Parallel_optimize {
             return;
         }
 
-        int processors = Runtime.getRuntime().availableProcessors();
-        System.out.println("\nUsing " + processors + " processor cores");
-
-        ForkJoinPool pool = new ForkJoinPool(processors);
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        System.out.println("\nUsing " + pool.getParallelism() + " processor threads");
 
+        pathsFound.reset();  // Repeated runs in one JVM start from zero
         startTime = System.currentTimeMillis();
-        lastUpdateTime = startTime;
 
         System.out.println("Starting parallel path exploration...\n");
 
-        long result = pool.invoke(new PathFinder(0, 0, 0, 1L, path));
+        // The root runs on the workers, this thread only waits for it
+        PathFinder rootTask = new PathFinder(0, 0, 0, 1L, CompiledPattern.compile(path), 1.0);
+        progress = QueryProgress.start(ENGINE, path, pool, pathsFound::sum, null);
+        pool.execute(rootTask);
+        try {
+            progress.await(rootTask);
+        } finally {
+            progress.close();
+        }
+        long result = rootTask.join();
 
         long endTime = System.currentTimeMillis();
         long totalTime = endTime - startTime;
@@ -207,8 +224,8 @@ public class Parallel_optimize {
         System.out.println("Time (ms): " + totalTime);
         System.out.printf("Average paths per second: %,.2f%n",
                 (result * 1000.0) / totalTime);
+        System.out.println(pathsFound.breakdown());
 
         scanner.close();
-        pool.shutdown();
     }
 }
\ No newline at end of file
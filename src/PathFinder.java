@@ -1,5 +1,10 @@
-import java.util.concurrent.*;
-import java.util.*;
+import Final.PatternCache;
+import Final.QueryPlanner;
+import Final.ResultStore;
+import Final.TranspositionTable;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
 
 public class PathFinder {
     private static final int SIZE = 8;
@@ -15,8 +20,37 @@ public class PathFinder {
     private static final int[][] DISTANCE_TO_END = new int[SIZE][SIZE];
     private static final int PROCESSORS = Runtime.getRuntime().availableProcessors();
 
-    private static final ExecutorService THREAD_POOL = Executors.newFixedThreadPool(PROCESSORS);
-    private final Map<String, Long> cache = Collections.synchronizedMap(new HashMap<>());
+    // Patterns with at most this many wildcards are backtracked directly, they are not worth a planner probe
+    private static final int SEQUENTIAL_WILDCARDS = 15;
+
+    // Counts of finished patterns, shared with their mirror patterns and bounded in size
+    private static final int DEFAULT_CACHE_CAPACITY = 10_000;
+    private final PatternCache cache;
+
+    // Optional on-disk store consulted after the cache, so results survive restarts
+    private final ResultStore resultStore;
+
+    // Optional subtree memo for the backtracking search, cleared for every new pattern
+    private static final int MEMO_MIN_MOVES_LEFT = 16;
+    private final TranspositionTable transpositionTable;
+
+    public PathFinder() {
+        this(null);
+    }
+
+    public PathFinder(TranspositionTable transpositionTable) {
+        this(transpositionTable, DEFAULT_CACHE_CAPACITY);
+    }
+
+    public PathFinder(TranspositionTable transpositionTable, int cacheCapacity) {
+        this(transpositionTable, cacheCapacity, null);
+    }
+
+    public PathFinder(TranspositionTable transpositionTable, int cacheCapacity, ResultStore resultStore) {
+        this.transpositionTable = transpositionTable;
+        this.cache = new PatternCache(cacheCapacity);
+        this.resultStore = resultStore;
+    }
 
     static {
         initializeLookupTables();
@@ -50,54 +84,46 @@ public class PathFinder {
             throw new IllegalArgumentException("Invalid pattern.");
         }
 
-        if (cache.containsKey(pattern)) return cache.get(pattern);
+        long cached = cache.get(pattern);
+        if (cached >= 0) return cached;
 
-        int wildcards = countWildcards(pattern);
-        long result = (wildcards > 15) ? parallelPathSearch(pattern) : sequentialPathSearch(pattern);
+        try {
+            if (resultStore != null && (cached = resultStore.get(pattern)) >= 0) {
+                cache.put(pattern, cached);
+                return cached;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        // Anything larger runs on the engine, direction, split depth and pool size the planner picks
+        long result = countWildcards(pattern) <= SEQUENTIAL_WILDCARDS
+                ? sequentialPathSearch(pattern) : QueryPlanner.execute(QueryPlanner.plan(pattern, PROCESSORS));
 
         cache.put(pattern, result);
+        try {
+            if (resultStore != null) {
+                resultStore.put(pattern, result);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
         return result;
     }
 
     /**
      * Sequential path search using recursive backtracking.
+     * The table is keyed on (position, visited) only, so it holds one pattern at a time: searches that
+     * use it take its lock, which also covers other finders sharing the same table.
      */
     private long sequentialPathSearch(String pattern) {
-        return backtrack(0, 0, pattern.toCharArray(), 0, 1L);
-    }
-
-    /**
-     * Parallel path search using multithreading for initial moves.
-     */
-    private long parallelPathSearch(String pattern) {
-        List<Future<Long>> futures = new ArrayList<>();
-        long visited = 1L; // Start at (0, 0)
-
-        char firstMove = pattern.charAt(0);
-        if (firstMove == '*') {
-            for (int dir = 0; dir < 4; dir++) {
-                int newRow = DY[dir];
-                int newCol = DX[dir];
-                if (isValid(newRow, newCol)) {
-                    long newVisited = visited | (1L << (newRow * SIZE + newCol));
-                    futures.add(THREAD_POOL.submit(() ->
-                            backtrack(newRow, newCol, pattern.toCharArray(), 1, newVisited)
-                    ));
-                }
-            }
-        } else {
-            int dir = getDirectionIndex(firstMove);
-            int newRow = DY[dir];
-            int newCol = DX[dir];
-            if (isValid(newRow, newCol)) {
-                long newVisited = visited | (1L << (newRow * SIZE + newCol));
-                futures.add(THREAD_POOL.submit(() ->
-                        backtrack(newRow, newCol, pattern.toCharArray(), 1, newVisited)
-                ));
-            }
+        if (transpositionTable == null) {
+            return backtrack(0, 0, pattern.toCharArray(), 0, 1L);
+        }
+        synchronized (transpositionTable) {
+            transpositionTable.clear();
+            return backtrack(0, 0, pattern.toCharArray(), 0, 1L);
         }
-
-        return collectResults(futures);
     }
 
     /**
@@ -123,6 +149,14 @@ public class PathFinder {
         int position = row * SIZE + col;
         char move = pattern[depth];
 
+        boolean memoize = transpositionTable != null && MOVES - depth >= MEMO_MIN_MOVES_LEFT;
+        if (memoize) {
+            long cached = transpositionTable.probe(position, visited);
+            if (cached >= 0) {
+                return cached;
+            }
+        }
+
         if (move == '*') {
             for (int dir = 0; dir < 4; dir++) {
                 long neighborMask = NEIGHBOR_MASKS[position][dir];
@@ -142,6 +176,9 @@ public class PathFinder {
             }
         }
 
+        if (memoize) {
+            transpositionTable.store(position, visited, depth, paths);
+        }
         return paths;
     }
 
@@ -162,22 +199,6 @@ public class PathFinder {
         return row >= 0 && row < SIZE && col >= 0 && col < SIZE;
     }
 
-    /**
-     * Collects results from multithreaded tasks.
-     */
-    private long collectResults(List<Future<Long>> futures) {
-        long total = 0;
-        try {
-            for (Future<Long> future : futures) {
-                total += future.get();
-            }
-        } catch (InterruptedException | ExecutionException e) {
-            e.printStackTrace();
-        }
-        return total;
-    }
-
-
     private static int getDirectionIndex(char dir) {
         return switch (dir) {
             case 'U' -> 0;
@@ -196,15 +217,9 @@ public class PathFinder {
         return (int) pattern.chars().filter(ch -> ch == '*').count();
     }
 
-    public void shutdown() {
-        THREAD_POOL.shutdown();
-        try {
-            if (!THREAD_POOL.awaitTermination(10, TimeUnit.SECONDS)) {
-                THREAD_POOL.shutdownNow();
-            }
-        } catch (InterruptedException e) {
-            THREAD_POOL.shutdownNow();
-        }
+    // Hit, miss and eviction counters of the pattern cache
+    public PatternCache cache() {
+        return cache;
     }
 
     public static void main(String[] args) {
@@ -212,6 +227,8 @@ public class PathFinder {
         String[] testCases = {
 //                "***************************************************************",
                 "*****DR******R******R********************R*D************L******",
+                // Mirror of the pattern above, answered from the cache
+                "******R************D*L********************L******L******LD*****",
 //                "DDDDDDRUUUUUURDDDDDDRUUUUUURDDDDDDRUUUUUURRDLDRDLDRDLDRDLLLLLLL"
         };
 
@@ -226,6 +243,6 @@ public class PathFinder {
             System.out.println("Time (ms): " + (endTime - startTime));
         }
 
-        finder.shutdown();
+        System.out.println(finder.cache().stats());
     }
 }
@@ -1,8 +1,11 @@
+import Final.Bitboard;
+import Final.EngineEvents;
+import Final.QueryProgress;
+import Final.StripedCounter;
+
 import java.util.Scanner;
 import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.RecursiveAction;
-import java.util.concurrent.atomic.AtomicLong;
-import java.util.concurrent.atomic.AtomicReference;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -10,13 +13,15 @@ public class Pre_compute_valid_move {
     // Constants for grid dimensions
     private static final int GRID_SIZE = 8;
     private static final int TOTAL_MOVES = 63;
+    private static final int END_POS = (GRID_SIZE - 1) * GRID_SIZE;
     private static final int PARALLEL_THRESHOLD = 10;
+    private static final String ENGINE = "Pre_compute_valid_move";
 
     // Progress tracking variables
-    private static final AtomicLong totalPaths = new AtomicLong(0);
-    private static long lastUpdateTime = 0;
+    // Per-worker striped counter, also gives the paths found by each worker thread
+    private static final StripedCounter totalPaths = new StripedCounter(ForkJoinPool.commonPool());
     private static long startTime = 0;
-    private static final long UPDATE_INTERVAL = 1000;
+    private static QueryProgress progress = null;
 
     // Direction arrays for movement
     private static final int[] DX = {1, -1, 0, 0};  // Down, Up, Right, Left
@@ -49,33 +54,40 @@ public class Pre_compute_valid_move {
         private final int x, y, moveIndex;
         private final long visited;
         private final String path;
-        private final AtomicReference<List<Long>> pathsPerThread;
-        private final int threadId;
+        private double share;  // Part of the root's subtree this task covers, split evenly at every fork
+        private long nodes;  // Nodes searched by this task and its inline subtrees, without forked children
 
-        public PathExplorer(int x, int y, int moveIndex, long visited, String path,
-                            AtomicReference<List<Long>> pathsPerThread, int threadId) {
+        public PathExplorer(int x, int y, int moveIndex, long visited, String path, double share) {
             this.x = x;
             this.y = y;
             this.moveIndex = moveIndex;
             this.visited = visited;
             this.path = path;
-            this.pathsPerThread = pathsPerThread;
-            this.threadId = threadId;
+            this.share = share;
         }
 
         @Override
         protected void compute() {
+            EngineEvents.TaskExecuted event = EngineEvents.taskStarted();
+            boolean forked = explore();
+            EngineEvents.taskFinished(event, ENGINE, moveIndex, nodes);
+            if (!forked && progress != null) {
+                progress.subtreesDone(share);
+            }
+        }
+
+        // Searches this task's subtree, true if it was handed to forked children
+        private boolean explore() {
+            nodes++;
             if (moveIndex == TOTAL_MOVES) {
                 if (x == GRID_SIZE - 1 && y == 0) {
-                    totalPaths.incrementAndGet();
-                    List<Long> currentPaths = pathsPerThread.get();
-                    currentPaths.set(threadId, currentPaths.get(threadId) + 1);
+                    totalPaths.increment();
                 }
-                return;
+                return false;
             }
 
             if (!canReachEnd(x, y, TOTAL_MOVES - moveIndex, visited)) {
-                return;
+                return false;
             }
 
             char currentMove = path.charAt(moveIndex);
@@ -92,9 +104,15 @@ public class Pre_compute_valid_move {
                 }
             }
 
-            if (!subtasks.isEmpty()) {
-                invokeAll(subtasks);
+            if (subtasks.isEmpty()) {
+                return false;
+            }
+            for (PathExplorer child : subtasks) {
+                child.share = share / subtasks.size();
             }
+            EngineEvents.taskForked(ENGINE, moveIndex, subtasks.size());
+            invokeAll(subtasks);
+            return true;
         }
 
         private void exploreMove(int dir, List<PathExplorer> subtasks) {
@@ -124,41 +142,43 @@ public class Pre_compute_valid_move {
             }
 
             if (moveIndex < PARALLEL_THRESHOLD) {
-                subtasks.add(new PathExplorer(newX, newY, moveIndex + 1,
-                        visited | bitMask, path, pathsPerThread, threadId));
+                subtasks.add(new PathExplorer(newX, newY, moveIndex + 1, visited | bitMask, path, 0));
             } else {
-                explorePaths(newX, newY, moveIndex + 1, visited | bitMask, path);
+                nodes += explorePaths(newX, newY, moveIndex + 1, visited | bitMask, path);
             }
         }
     }
 
-    private static void explorePaths(int x, int y, int moveIndex, long visited, String path) {
+    // Searches a subtree on the calling thread, returns the nodes searched
+    private static long explorePaths(int x, int y, int moveIndex, long visited, String path) {
         if (moveIndex == TOTAL_MOVES) {
             if (x == GRID_SIZE - 1 && y == 0) {
-                totalPaths.incrementAndGet();
+                totalPaths.increment();
             }
-            return;
+            return 1;
         }
 
         if (!canReachEnd(x, y, TOTAL_MOVES - moveIndex, visited)) {
-            return;
+            return 1;
         }
 
         char currentMove = path.charAt(moveIndex);
+        long nodes = 1;
 
         if (currentMove == '*') {
             for (int dir = 0; dir < 4; dir++) {
-                exploreMoveDirection(x, y, dir, moveIndex, visited, path);
+                nodes += exploreMoveDirection(x, y, dir, moveIndex, visited, path);
             }
         } else {
             int dir = getDirectionIndex(currentMove);
             if (dir != -1) {
-                exploreMoveDirection(x, y, dir, moveIndex, visited, path);
+                nodes += exploreMoveDirection(x, y, dir, moveIndex, visited, path);
             }
         }
+        return nodes;
     }
 
-    private static void exploreMoveDirection(int x, int y, int dir, int moveIndex, long visited, String path) {
+    private static long exploreMoveDirection(int x, int y, int dir, int moveIndex, long visited, String path) {
         boolean canMove = switch(dir) {
             case 0 -> canMoveDown[x][y];
             case 1 -> canMoveUp[x][y];
@@ -168,7 +188,7 @@ public class Pre_compute_valid_move {
         };
 
         if (!canMove) {
-            return;
+            return 0;
         }
 
         int newX = x + DX[dir];
@@ -177,14 +197,14 @@ public class Pre_compute_valid_move {
         long pos = (long) newX * GRID_SIZE + newY;
         long bitMask = 1L << pos;
         if ((visited & bitMask) != 0) {
-            return;
+            return 0;
         }
 
         if (moveIndex == TOTAL_MOVES - 1 && (newX != GRID_SIZE - 1 || newY != 0)) {
-            return;
+            return 0;
         }
 
-        explorePaths(newX, newY, moveIndex + 1, visited | bitMask, path);
+        return explorePaths(newX, newY, moveIndex + 1, visited | bitMask, path);
     }
 
     private static boolean canReachEnd(int x, int y, int movesLeft, long visited) {
@@ -198,44 +218,7 @@ public class Pre_compute_valid_move {
             return false;
         }
 
-        return !hasIsolatedUnvisitedCells(x, y, visited);
-    }
-
-    private static boolean hasIsolatedUnvisitedCells(int currentX, int currentY, long visited) {
-        if (Long.bitCount(visited) > GRID_SIZE * GRID_SIZE - 10) {
-            boolean[][] grid = new boolean[GRID_SIZE][GRID_SIZE];
-            for (int i = 0; i < GRID_SIZE; i++) {
-                for (int j = 0; j < GRID_SIZE; j++) {
-                    grid[i][j] = (visited & (1L << (i * GRID_SIZE + j))) != 0;
-                }
-            }
-
-            for (int i = 0; i < GRID_SIZE; i++) {
-                for (int j = 0; j < GRID_SIZE; j++) {
-                    if (!grid[i][j] && (i != currentX || j != currentY)) {
-                        int accessibleNeighbors = 0;
-                        for (int dir = 0; dir < 4; dir++) {
-                            int newX = i + DX[dir];
-                            int newY = j + DY[dir];
-                            boolean canMove = switch(dir) {
-                                case 0 -> canMoveDown[i][j];
-                                case 1 -> canMoveUp[i][j];
-                                case 2 -> canMoveRight[i][j];
-                                case 3 -> canMoveLeft[i][j];
-                                default -> false;
-                            };
-                            if (canMove && !grid[newX][newY]) {
-                                accessibleNeighbors++;
-                            }
-                        }
-                        if (accessibleNeighbors == 0) {
-                            return true;
-                        }
-                    }
-                }
-            }
-        }
-        return false;
+        return Bitboard.canComplete(visited, x * GRID_SIZE + y, END_POS);
     }
 
     private static int getDirectionIndex(char direction) {
@@ -248,17 +231,6 @@ public class Pre_compute_valid_move {
         };
     }
 
-    private static void showProgress() {
-        long currentTime = System.currentTimeMillis();
-        if (currentTime - lastUpdateTime >= UPDATE_INTERVAL) {
-            long elapsedSeconds = (currentTime - startTime) / 1000;
-            System.out.printf("\rPaths found: %,d, Time elapsed: %ds, Paths/second: %,d",
-                    totalPaths.get(), elapsedSeconds,
-                    elapsedSeconds > 0 ? totalPaths.get() / elapsedSeconds : 0);
-            lastUpdateTime = currentTime;
-        }
-    }
-
     private static boolean isValidInput(String path) {
         if (path.length() != TOTAL_MOVES) {
             return false;
@@ -281,39 +253,31 @@ public class Pre_compute_valid_move {
         System.out.println("\nUsing " + processors + " processor cores");
         ForkJoinPool pool = ForkJoinPool.commonPool();
 
-        List<Long> initialList = new ArrayList<>();
-        for (int i = 0; i < processors; i++) {
-            initialList.add(0L);
-        }
-        AtomicReference<List<Long>> pathsPerThread = new AtomicReference<>(initialList);
-
+        totalPaths.reset();  // Repeated runs in one JVM start from zero
         startTime = System.currentTimeMillis();
-        lastUpdateTime = startTime;
 
         System.out.println("Starting parallel path exploration...\n");
 
+        // Progress is published by QueryProgress while this thread waits on the root task
         long initialVisited = 1L;
-        PathExplorer rootTask = new PathExplorer(0, 0, 0, initialVisited, path, pathsPerThread, 0);
+        PathExplorer rootTask = new PathExplorer(0, 0, 0, initialVisited, path, 1.0);
+        progress = QueryProgress.start(ENGINE, path, pool, totalPaths::sum, null);
         pool.execute(rootTask);
-
-        while (!rootTask.isDone()) {
-            showProgress();
-            try {
-                Thread.sleep(100);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                break;
-            }
+        try {
+            progress.await(rootTask);
+        } finally {
+            progress.close();
         }
 
         long endTime = System.currentTimeMillis();
         long totalTime = endTime - startTime;
 
         System.out.println("\n\nFinal Results:");
-        System.out.println("Total paths: " + totalPaths.get());
+        System.out.println("Total paths: " + totalPaths.sum());
         System.out.println("Time (ms): " + totalTime);
         System.out.printf("Average paths per second: %,.2f%n",
-                (totalPaths.get() * 1000.0) / totalTime);
+                (totalPaths.sum() * 1000.0) / totalTime);
+        System.out.println(totalPaths.breakdown());
 
         scanner.close();
     }
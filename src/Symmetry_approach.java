@@ -1,7 +1,10 @@
+import Final.EngineEvents;
+import Final.QueryProgress;
+import Final.StripedCounter;
+
 import java.util.Scanner;
 import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.RecursiveAction;
-import java.util.concurrent.atomic.AtomicLong;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -9,11 +12,12 @@ public class Symmetry_approach {
     private static final int GRID_SIZE = 8;
     private static final int TOTAL_MOVES = 63;
     private static final int PARALLEL_THRESHOLD = 10;
+    private static final String ENGINE = "Symmetry_approach";
 
-    private static final AtomicLong totalPaths = new AtomicLong(0);
-    private static long lastUpdateTime = 0;
+    // One padded stripe of the path count per common pool worker
+    private static final StripedCounter totalPaths = new StripedCounter(ForkJoinPool.commonPool());
     private static long startTime = 0;
-    private static final long UPDATE_INTERVAL = 1000;
+    private static QueryProgress progress = null;
 
     // Movement directions (Down, Up, Right, Left)
     private static final int[] DX = {1, -1, 0, 0};
@@ -23,28 +27,42 @@ public class Symmetry_approach {
         private final int x, y, moveIndex;
         private final long visited;
         private final String path;
+        private double share;  // Part of the root's subtree this task covers, split evenly at every fork
+        private long nodes;  // Nodes searched by this task and its inline subtrees, without forked children
 
-        public PathExplorer(int x, int y, int moveIndex, long visited, String path) {
+        public PathExplorer(int x, int y, int moveIndex, long visited, String path, double share) {
             this.x = x;
             this.y = y;
             this.moveIndex = moveIndex;
             this.visited = visited;
             this.path = path;
+            this.share = share;
         }
 
         @Override
         protected void compute() {
+            EngineEvents.TaskExecuted event = EngineEvents.taskStarted();
+            boolean forked = explore();
+            EngineEvents.taskFinished(event, ENGINE, moveIndex, nodes);
+            if (!forked && progress != null) {
+                progress.subtreesDone(share);
+            }
+        }
+
+        // Searches this task's subtree, true if it was handed to forked children
+        private boolean explore() {
+            nodes++;
             // Base case: reached end of path
             if (moveIndex == TOTAL_MOVES) {
                 if (x == GRID_SIZE - 1 && y == 0) {
-                    totalPaths.incrementAndGet();
+                    totalPaths.increment();
                 }
-                return;
+                return false;
             }
 
             // Early termination checks
             if (!canReachEnd(x, y, TOTAL_MOVES - moveIndex, visited)) {
-                return;
+                return false;
             }
 
             char currentMove = path.charAt(moveIndex);
@@ -61,9 +79,15 @@ public class Symmetry_approach {
                 tryMove(dir, subtasks);
             }
 
-            if (!subtasks.isEmpty()) {
-                invokeAll(subtasks);
+            if (subtasks.isEmpty()) {
+                return false;
+            }
+            for (PathExplorer child : subtasks) {
+                child.share = share / subtasks.size();
             }
+            EngineEvents.taskForked(ENGINE, moveIndex, subtasks.size());
+            invokeAll(subtasks);
+            return true;
         }
 
         private void tryMove(int dir, List<PathExplorer> subtasks) {
@@ -86,52 +110,55 @@ public class Symmetry_approach {
             // Create new task or explore further based on depth
             if (moveIndex < PARALLEL_THRESHOLD) {
                 subtasks.add(new PathExplorer(newX, newY, moveIndex + 1,
-                        visited | bitMask, path));
+                        visited | bitMask, path, 0));
             } else {
-                explorePaths(newX, newY, moveIndex + 1, visited | bitMask, path);
+                nodes += explorePaths(newX, newY, moveIndex + 1, visited | bitMask, path);
             }
         }
     }
 
-    private static void explorePaths(int x, int y, int moveIndex, long visited, String path) {
+    // Searches a subtree on the calling thread, returns the nodes searched
+    private static long explorePaths(int x, int y, int moveIndex, long visited, String path) {
         if (moveIndex == TOTAL_MOVES) {
             if (x == GRID_SIZE - 1 && y == 0) {
-                totalPaths.incrementAndGet();
+                totalPaths.increment();
             }
-            return;
+            return 1;
         }
 
         if (!canReachEnd(x, y, TOTAL_MOVES - moveIndex, visited)) {
-            return;
+            return 1;
         }
 
         char currentMove = path.charAt(moveIndex);
+        long nodes = 1;
         if (currentMove == '*') {
             for (int dir = 0; dir < 4; dir++) {
-                tryExploreMove(x, y, moveIndex, visited, path, dir);
+                nodes += tryExploreMove(x, y, moveIndex, visited, path, dir);
             }
         } else {
             int dir = getDirectionIndex(currentMove);
-            tryExploreMove(x, y, moveIndex, visited, path, dir);
+            nodes += tryExploreMove(x, y, moveIndex, visited, path, dir);
         }
+        return nodes;
     }
 
-    private static void tryExploreMove(int x, int y, int moveIndex, long visited,
+    private static long tryExploreMove(int x, int y, int moveIndex, long visited,
                                        String path, int dir) {
         int newX = x + DX[dir];
         int newY = y + DY[dir];
 
-        if (!isValid(newX, newY)) return;
+        if (!isValid(newX, newY)) return 0;
 
         long pos = (long) newX * GRID_SIZE + newY;
         long bitMask = 1L << pos;
-        if ((visited & bitMask) != 0) return;
+        if ((visited & bitMask) != 0) return 0;
 
         if (moveIndex == TOTAL_MOVES - 1) {
-            if (newX != GRID_SIZE - 1 || newY != 0) return;
+            if (newX != GRID_SIZE - 1 || newY != 0) return 0;
         }
 
-        explorePaths(newX, newY, moveIndex + 1, visited | bitMask, path);
+        return explorePaths(newX, newY, moveIndex + 1, visited | bitMask, path);
     }
 
     private static boolean canReachEnd(int x, int y, int movesLeft, long visited) {
@@ -171,17 +198,6 @@ public class Symmetry_approach {
         return path.matches("[UDLR*]+");
     }
 
-    private static void showProgress() {
-        long currentTime = System.currentTimeMillis();
-        if (currentTime - lastUpdateTime >= UPDATE_INTERVAL) {
-            long elapsedSeconds = (currentTime - startTime) / 1000;
-            System.out.printf("\rPaths found: %,d, Time elapsed: %ds, Paths/second: %,d",
-                    totalPaths.get(), elapsedSeconds,
-                    elapsedSeconds > 0 ? totalPaths.get() / elapsedSeconds : 0);
-            lastUpdateTime = currentTime;
-        }
-    }
-
     public static void main(String[] args) {
         Scanner scanner = new Scanner(System.in);
         System.out.print("Input:\n");
@@ -200,33 +216,30 @@ public class Symmetry_approach {
 
         ForkJoinPool pool = ForkJoinPool.commonPool();
 
+        totalPaths.reset();  // Repeated runs in one JVM start from zero
         startTime = System.currentTimeMillis();
-        lastUpdateTime = startTime;
 
         System.out.println("Starting parallel path exploration...\n");
 
         long initialVisited = 1L;
-        PathExplorer rootTask = new PathExplorer(0, 0, 0, initialVisited, path);
+        PathExplorer rootTask = new PathExplorer(0, 0, 0, initialVisited, path, 1.0);
+        progress = QueryProgress.start(ENGINE, path, pool, totalPaths::sum, null);
         pool.execute(rootTask);
-
-        while (!rootTask.isDone()) {
-            showProgress();
-            try {
-                Thread.sleep(100);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                break;
-            }
+        try {
+            progress.await(rootTask);
+        } finally {
+            progress.close();
         }
 
         long endTime = System.currentTimeMillis();
         long totalTime = endTime - startTime;
 
         System.out.println("\n\nFinal Results:");
-        System.out.println("Total paths found: " + totalPaths.get());
+        System.out.println("Total paths found: " + totalPaths.sum());
         System.out.println("Time (ms): " + totalTime);
         System.out.printf("Average paths per second: %,.2f%n",
-                (totalPaths.get() * 1000.0) / totalTime);
+                (totalPaths.sum() * 1000.0) / totalTime);
+        System.out.println(totalPaths.breakdown());
 
         scanner.close();
     }
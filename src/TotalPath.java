@@ -1,8 +1,12 @@
+import Final.CompiledPattern;
+import Final.EngineEvents;
+import Final.QueryProgress;
+import Final.SearchKernel;
+import Final.StripedCounter;
+
 import java.util.Scanner;
 import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.RecursiveAction;
-import java.util.concurrent.atomic.AtomicLong;
-import java.util.concurrent.atomic.AtomicReference;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -11,17 +15,20 @@ public class TotalPath {
     private static final int GRID_SIZE = 8;
     private static final int TOTAL_MOVES = 63;
     private static final int PARALLEL_THRESHOLD = 10;
+    private static final String ENGINE = "TotalPath";
 
-    // Progress tracking variables
-    private static final AtomicLong totalPaths = new AtomicLong(0);
-    private static long lastUpdateTime = 0;
+    // Progress tracking variables, one padded stripe of the path count per common pool worker
+    private static final StripedCounter totalPaths = new StripedCounter(ForkJoinPool.commonPool());
     private static long startTime = 0;
-    private static final long UPDATE_INTERVAL = 1000;
+    private static QueryProgress progress = null;
 
     // Possible movement directions
     private static final int[] DX = {1, -1, 0, 0};  // Down, Up, Right, Left
     private static final int[] DY = {0, 0, 1, -1};
 
+    // Leaf subtrees run on the iterative kernel, one per worker thread
+    private static final ThreadLocal<SearchKernel> kernels = ThreadLocal.withInitial(SearchKernel::new);
+
     /**
      * Check if the current path can potentially reach the end point
      */
@@ -83,39 +90,46 @@ public class TotalPath {
     private static class PathExplorer extends RecursiveAction {
         private final int x, y, moveIndex;
         private final long visited;
-        private final String path;
-        private final AtomicReference<List<Long>> pathsPerThread;
-        private final int threadId;
+        private final CompiledPattern path;
+        private double share;  // Part of the root's subtree this task covers, split evenly at every fork
+        private long nodes;  // Nodes searched by this task and its kernel subtrees, without forked children
 
-        public PathExplorer(int x, int y, int moveIndex, long visited, String path,
-                            AtomicReference<List<Long>> pathsPerThread, int threadId) {
+        public PathExplorer(int x, int y, int moveIndex, long visited, CompiledPattern path, double share) {
             this.x = x;
             this.y = y;
             this.moveIndex = moveIndex;
             this.visited = visited;
             this.path = path;
-            this.pathsPerThread = pathsPerThread;
-            this.threadId = threadId;
+            this.share = share;
         }
 
         @Override
         protected void compute() {
+            EngineEvents.TaskExecuted event = EngineEvents.taskStarted();
+            boolean forked = explore();
+            EngineEvents.taskFinished(event, ENGINE, moveIndex, nodes);
+            if (!forked && progress != null) {
+                progress.subtreesDone(share);
+            }
+        }
+
+        // Searches this task's subtree, true if it was handed to forked children
+        private boolean explore() {
+            nodes++;
             // Early termination checks
             if (!canReachEnd(x, y, TOTAL_MOVES - moveIndex, visited)) {
-                return;
+                return false;
             }
 
             // Base case: reached end of path
             if (moveIndex == TOTAL_MOVES) {
                 if (x == GRID_SIZE - 1 && y == 0) {
-                    totalPaths.incrementAndGet();
-                    List<Long> currentPaths = pathsPerThread.get();
-                    currentPaths.set(threadId, currentPaths.get(threadId) + 1);
+                    totalPaths.increment();
                 }
-                return;
+                return false;
             }
 
-            char currentMove = path.charAt(moveIndex);
+            char currentMove = path.path().charAt(moveIndex);
             List<PathExplorer> subtasks = new ArrayList<>();
 
             // Handle wildcard moves
@@ -135,9 +149,9 @@ public class TotalPath {
 
                         if (moveIndex < PARALLEL_THRESHOLD) {
                             subtasks.add(new PathExplorer(newX, newY, moveIndex + 1,
-                                    visited | bitMask, path, pathsPerThread, threadId));
+                                    visited | bitMask, path, 0));
                         } else {
-                            explorePaths(newX, newY, moveIndex + 1, visited | bitMask, path);
+                            nodes += explorePaths(newX, newY, moveIndex + 1, visited | bitMask, path);
                         }
                     }
                 }
@@ -152,26 +166,21 @@ public class TotalPath {
                 if (isValid(newX, newY) && (visited & bitMask) == 0) {
                     // Check if this is the last move and it's not reaching the end position
                     if (moveIndex == TOTAL_MOVES - 1 && (newX != GRID_SIZE - 1 || newY != 0)) {
-                        return;
+                        return false;
                     }
-                    explorePaths(newX, newY, moveIndex + 1, visited | bitMask, path);
+                    nodes += explorePaths(newX, newY, moveIndex + 1, visited | bitMask, path);
                 }
             }
 
-            if (!subtasks.isEmpty()) {
-                invokeAll(subtasks);
+            if (subtasks.isEmpty()) {
+                return false;
             }
-        }
-    }
-
-    private static void showProgress() {
-        long currentTime = System.currentTimeMillis();
-        if (currentTime - lastUpdateTime >= UPDATE_INTERVAL) {
-            long elapsedSeconds = (currentTime - startTime) / 1000;
-            System.out.printf("\rPaths found: %,d, Time elapsed: %ds, Paths/second: %,d",
-                    totalPaths.get(), elapsedSeconds,
-                    elapsedSeconds > 0 ? totalPaths.get() / elapsedSeconds : 0);
-            lastUpdateTime = currentTime;
+            for (PathExplorer child : subtasks) {
+                child.share = share / subtasks.size();
+            }
+            EngineEvents.taskForked(ENGINE, moveIndex, subtasks.size());
+            invokeAll(subtasks);
+            return true;
         }
     }
 
@@ -189,40 +198,12 @@ public class TotalPath {
         };
     }
 
-    private static void explorePaths(int x, int y, int moveIndex, long visited, String path) {
-        if (moveIndex == TOTAL_MOVES) {
-            if (x == GRID_SIZE - 1 && y == 0) {
-                totalPaths.incrementAndGet();
-            }
-            return;
-        }
-
-        char currentMove = path.charAt(moveIndex);
-
-        if (currentMove == '*') {
-            for (int dir = 0; dir < 4; dir++) {
-                int newX = x + DX[dir];
-                int newY = y + DY[dir];
-
-                long pos = (long) newX * GRID_SIZE + newY;
-                long bitMask = 1L << pos;
-
-                if (isValid(newX, newY) && (visited & bitMask) == 0) {
-                    explorePaths(newX, newY, moveIndex + 1, visited | bitMask, path);
-                }
-            }
-        } else {
-            int dir = getDirectionIndex(currentMove);
-            int newX = x + DX[dir];
-            int newY = y + DY[dir];
-
-            long pos = (long) newX * GRID_SIZE + newY;
-            long bitMask = 1L << pos;
-
-            if (isValid(newX, newY) && (visited & bitMask) == 0) {
-                explorePaths(newX, newY, moveIndex + 1, visited | bitMask, path);
-            }
-        }
+    // Counts a leaf subtree on this worker's kernel, returns the nodes it searched
+    private static long explorePaths(int x, int y, int moveIndex, long visited, CompiledPattern path) {
+        SearchKernel kernel = kernels.get();
+        long before = kernel.nodes();
+        totalPaths.add(kernel.count(path, null, x * GRID_SIZE + y, moveIndex, visited));
+        return kernel.nodes() - before;
     }
 
     private static boolean isValidInput(String path) {
@@ -248,33 +229,21 @@ public class TotalPath {
         System.out.println("\nUsing " + processors + " processor cores");
         ForkJoinPool pool = ForkJoinPool.commonPool();
 
-        // Initialize thread-specific counters
-        List<Long> initialList = new ArrayList<>();
-        for (int i = 0; i < processors; i++) {
-            initialList.add(0L);
-        }
-        AtomicReference<List<Long>> pathsPerThread = new AtomicReference<>(initialList);
-
         // Start timing
+        totalPaths.reset();  // Repeated runs in one JVM start from zero
         startTime = System.currentTimeMillis();
-        lastUpdateTime = startTime;
 
         System.out.println("Starting parallel path exploration...\n");
 
-        // Start parallel processing
+        // Start parallel processing, progress is published by QueryProgress while this thread waits
         long initialVisited = 1L;
-        PathExplorer rootTask = new PathExplorer(0, 0, 0, initialVisited, path, pathsPerThread, 0);
+        PathExplorer rootTask = new PathExplorer(0, 0, 0, initialVisited, CompiledPattern.compile(path), 1.0);
+        progress = QueryProgress.start(ENGINE, path, pool, totalPaths::sum, null);
         pool.execute(rootTask);
-
-        // Show progress while computing
-        while (!rootTask.isDone()) {
-            showProgress();
-            try {
-                Thread.sleep(100);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                break;
-            }
+        try {
+            progress.await(rootTask);
+        } finally {
+            progress.close();
         }
 
         long endTime = System.currentTimeMillis();
@@ -282,10 +251,11 @@ public class TotalPath {
 
         // Show final results
         System.out.println("\n\nFinal Results:");
-        System.out.println("Total paths: " + totalPaths.get());
+        System.out.println("Total paths: " + totalPaths.sum());
         System.out.println("Time (ms): " + totalTime);
         System.out.printf("Average paths per second: %,.2f%n",
-                (totalPaths.get() * 1000.0) / totalTime);
+                (totalPaths.sum() * 1000.0) / totalTime);
+        System.out.println(totalPaths.breakdown());
 
         scanner.close();
     }
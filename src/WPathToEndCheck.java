@@ -1,8 +1,12 @@
+import Final.Bitboard;
+import Final.EngineEvents;
+import Final.FeasibilityMasks;
+import Final.QueryProgress;
+import Final.StripedCounter;
+
 import java.util.Scanner;
 import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.RecursiveAction;
-import java.util.concurrent.atomic.AtomicLong;
-import java.util.concurrent.atomic.AtomicReference;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -10,13 +14,14 @@ public class WPathToEndCheck {
     // Constants for grid dimensions
     private static final int GRID_SIZE = 8;
     private static final int TOTAL_MOVES = 63;
+    private static final int END_POS = (GRID_SIZE - 1) * GRID_SIZE;
     private static final int PARALLEL_THRESHOLD = 10;
+    private static final String ENGINE = "WPathToEndCheck";
 
-    // Progress tracking variables
-    private static final AtomicLong totalPaths = new AtomicLong(0);
-    private static long lastUpdateTime = 0;
+    // Progress tracking variables, one padded stripe of the path count per common pool worker
+    private static final StripedCounter totalPaths = new StripedCounter(ForkJoinPool.commonPool());
     private static long startTime = 0;
-    private static final long UPDATE_INTERVAL = 1000;
+    private static QueryProgress progress = null;
 
     // Possible movement directions
     private static final int[] DX = {1, -1, 0, 0};  // Down, Up, Right, Left
@@ -29,50 +34,19 @@ public class WPathToEndCheck {
      */
     private static class PathPattern {
         private final String path;
-        private final int[] fixedRPositions;
-        private final int[] fixedDPositions;
-        private final int[] fixedLPositions;
+        private final long[] feasibleCells;  // Cells the walker may occupy after each move
 
         public PathPattern(String path) {
             this.path = path;
-            List<Integer> rPos = new ArrayList<>();
-            List<Integer> dPos = new ArrayList<>();
-            List<Integer> lPos = new ArrayList<>();
-
-            for (int i = 0; i < path.length(); i++) {
-                char c = path.charAt(i);
-                if (c == 'R') rPos.add(i);
-                else if (c == 'D') dPos.add(i);
-                else if (c == 'L') lPos.add(i);
-            }
+            this.feasibleCells = FeasibilityMasks.compile(path);
+        }
 
-            fixedRPositions = rPos.stream().mapToInt(Integer::intValue).toArray();
-            fixedDPositions = dPos.stream().mapToInt(Integer::intValue).toArray();
-            fixedLPositions = lPos.stream().mapToInt(Integer::intValue).toArray();
+        public boolean canMatch() {
+            return FeasibilityMasks.isFeasible(feasibleCells);
         }
 
         public boolean canSatisfyRemainingMoves(int x, int y, int moveIndex) {
-            int remainingRight = 0;
-            int remainingDown = 0;
-            int remainingLeft = 0;
-
-            // Count remaining fixed moves after current position
-            for (int pos : fixedRPositions) {
-                if (pos >= moveIndex) remainingRight++;
-            }
-            for (int pos : fixedDPositions) {
-                if (pos >= moveIndex) remainingDown++;
-            }
-            for (int pos : fixedLPositions) {
-                if (pos >= moveIndex) remainingLeft++;
-            }
-
-            // Check if we can make all required moves from current position
-            if (y + remainingRight >= GRID_SIZE) return false;
-            if (x + remainingDown >= GRID_SIZE) return false;
-            if (y - remainingLeft < 0) return false;
-
-            return true;
+            return (feasibleCells[moveIndex] & (1L << (x * GRID_SIZE + y))) != 0;
         }
 
         public char getMoveAt(int index) {
@@ -101,44 +75,32 @@ public class WPathToEndCheck {
             return false;
         }
 
-        // Only perform trapped check near the end
-        if (movesLeft < 5) {
-            boolean hasUnvisitedNeighbor = false;
-            for (int dir = 0; dir < 4; dir++) {
-                int newX = x + DX[dir];
-                int newY = y + DY[dir];
-                if (isValid(newX, newY)) {
-                    long pos = (long) newX * GRID_SIZE + newY;
-                    if ((visited & (1L << pos)) == 0) {
-                        hasUnvisitedNeighbor = true;
-                        break;
-                    }
-                }
-            }
-            if (!hasUnvisitedNeighbor && movesLeft > 0) {
-                return false;
-            }
+        // Trapped, dead cell and path to end checks on the visited bitboard
+        if (!Bitboard.canComplete(visited, x * GRID_SIZE + y, END_POS)) {
+            return false;
         }
 
         return true;
     }
 
     /**
-     * Path exploration logic with early elimination
+     * Path exploration logic with early elimination, returns the nodes searched
      */
-    private static void explorePaths(int x, int y, int moveIndex, long visited, String path) {
+    private static long explorePaths(int x, int y, int moveIndex, long visited, String path) {
         // Base case: reached end of path
         if (moveIndex == TOTAL_MOVES) {
             if (x == GRID_SIZE - 1 && y == 0) {
-                totalPaths.incrementAndGet();
+                totalPaths.increment();
             }
-            return;
+            return 1;
         }
 
         if (!canReachEnd(x, y, moveIndex, TOTAL_MOVES - moveIndex, visited)) {
-            return;
+            return 1;
         }
 
+        long nodes = 1;
+
         char currentMove = path.charAt(moveIndex);
 
         if (currentMove == '*') {
@@ -158,17 +120,17 @@ public class WPathToEndCheck {
                         continue;
                     }
 
-                    explorePaths(newX, newY, moveIndex + 1, visited | bitMask, path);
+                    nodes += explorePaths(newX, newY, moveIndex + 1, visited | bitMask, path);
                 }
             }
         } else {
             int dir = getDirectionIndex(currentMove);
-            if (dir == -1) return;  // Invalid direction
+            if (dir == -1) return nodes;  // Invalid direction
 
             int newX = x + DX[dir];
             int newY = y + DY[dir];
 
-            if (!isValid(newX, newY)) return;
+            if (!isValid(newX, newY)) return nodes;
 
             long pos = (long) newX * GRID_SIZE + newY;
             long bitMask = 1L << pos;
@@ -176,46 +138,54 @@ public class WPathToEndCheck {
             if ((visited & bitMask) == 0) {
                 // Additional check for last move
                 if (moveIndex == TOTAL_MOVES - 1 && (newX != GRID_SIZE - 1 || newY != 0)) {
-                    return;
+                    return nodes;
                 }
 
-                explorePaths(newX, newY, moveIndex + 1, visited | bitMask, path);
+                nodes += explorePaths(newX, newY, moveIndex + 1, visited | bitMask, path);
             }
         }
+        return nodes;
     }
 
     private static class PathExplorer extends RecursiveAction {
         private final int x, y, moveIndex;
         private final long visited;
         private final String path;
-        private final AtomicReference<List<Long>> pathsPerThread;
-        private final int threadId;
+        private double share;  // Part of the root's subtree this task covers, split evenly at every fork
+        private long nodes;  // Nodes searched by this task and its inline subtrees, without forked children
 
-        public PathExplorer(int x, int y, int moveIndex, long visited, String path,
-                            AtomicReference<List<Long>> pathsPerThread, int threadId) {
+        public PathExplorer(int x, int y, int moveIndex, long visited, String path, double share) {
             this.x = x;
             this.y = y;
             this.moveIndex = moveIndex;
             this.visited = visited;
             this.path = path;
-            this.pathsPerThread = pathsPerThread;
-            this.threadId = threadId;
+            this.share = share;
         }
 
         @Override
         protected void compute() {
+            EngineEvents.TaskExecuted event = EngineEvents.taskStarted();
+            boolean forked = explore();
+            EngineEvents.taskFinished(event, ENGINE, moveIndex, nodes);
+            if (!forked && progress != null) {
+                progress.subtreesDone(share);
+            }
+        }
+
+        // Searches this task's subtree, true if it was handed to forked children
+        private boolean explore() {
+            nodes++;
             if (!canReachEnd(x, y, moveIndex, TOTAL_MOVES - moveIndex, visited)) {
-                return;
+                return false;
             }
 
             // Base case: reached end of path
             if (moveIndex == TOTAL_MOVES) {
                 if (x == GRID_SIZE - 1 && y == 0) {
-                    totalPaths.incrementAndGet();
-                    List<Long> currentPaths = pathsPerThread.get();
-                    currentPaths.set(threadId, currentPaths.get(threadId) + 1);
+                    totalPaths.increment();
                 }
-                return;
+                return false;
             }
 
             char currentMove = path.charAt(moveIndex);
@@ -238,9 +208,9 @@ public class WPathToEndCheck {
 
                         if (moveIndex < PARALLEL_THRESHOLD) {
                             subtasks.add(new PathExplorer(newX, newY, moveIndex + 1,
-                                    visited | bitMask, path, pathsPerThread, threadId));
+                                    visited | bitMask, path, 0));
                         } else {
-                            explorePaths(newX, newY, moveIndex + 1, visited | bitMask, path);
+                            nodes += explorePaths(newX, newY, moveIndex + 1, visited | bitMask, path);
                         }
                     }
                 }
@@ -256,17 +226,23 @@ public class WPathToEndCheck {
 
                         if ((visited & bitMask) == 0) {
                             if (moveIndex == TOTAL_MOVES - 1 && (newX != GRID_SIZE - 1 || newY != 0)) {
-                                return;
+                                return false;
                             }
-                            explorePaths(newX, newY, moveIndex + 1, visited | bitMask, path);
+                            nodes += explorePaths(newX, newY, moveIndex + 1, visited | bitMask, path);
                         }
                     }
                 }
             }
 
-            if (!subtasks.isEmpty()) {
-                invokeAll(subtasks);
+            if (subtasks.isEmpty()) {
+                return false;
+            }
+            for (PathExplorer child : subtasks) {
+                child.share = share / subtasks.size();
             }
+            EngineEvents.taskForked(ENGINE, moveIndex, subtasks.size());
+            invokeAll(subtasks);
+            return true;
         }
     }
 
@@ -291,17 +267,6 @@ public class WPathToEndCheck {
         return path.matches("[UDLR*]+");
     }
 
-    private static void showProgress() {
-        long currentTime = System.currentTimeMillis();
-        if (currentTime - lastUpdateTime >= UPDATE_INTERVAL) {
-            long elapsedSeconds = (currentTime - startTime) / 1000;
-            System.out.printf("\rPaths found: %,d, Time elapsed: %ds, Paths/second: %,d",
-                    totalPaths.get(), elapsedSeconds,
-                    elapsedSeconds > 0 ? totalPaths.get() / elapsedSeconds : 0);
-            lastUpdateTime = currentTime;
-        }
-    }
-
     public static void main(String[] args) {
         Scanner scanner = new Scanner(System.in);
         System.out.print("Input:\n");
@@ -314,39 +279,34 @@ public class WPathToEndCheck {
         }
 
         pattern = new PathPattern(path);
+        if (!pattern.canMatch()) {
+            System.out.println("\nFinal Results:");
+            System.out.println("Total paths: 0");
+            System.out.println("Pattern can never match, search skipped");
+            scanner.close();
+            return;
+        }
 
         // Initialize parallel processing
         int processors = Runtime.getRuntime().availableProcessors();
         System.out.println("\nUsing " + processors + " processor cores");
         ForkJoinPool pool = ForkJoinPool.commonPool();
 
-        // Initialize thread-specific counters
-        List<Long> initialList = new ArrayList<>();
-        for (int i = 0; i < processors; i++) {
-            initialList.add(0L);
-        }
-        AtomicReference<List<Long>> pathsPerThread = new AtomicReference<>(initialList);
-
         // Start timing
+        totalPaths.reset();  // Repeated runs in one JVM start from zero
         startTime = System.currentTimeMillis();
-        lastUpdateTime = startTime;
 
         System.out.println("Starting parallel path exploration...\n");
 
-        // Start parallel processing
+        // Start parallel processing, progress is published by QueryProgress while this thread waits
         long initialVisited = 1L;  // Mark starting position as visited
-        PathExplorer rootTask = new PathExplorer(0, 0, 0, initialVisited, path, pathsPerThread, 0);
+        PathExplorer rootTask = new PathExplorer(0, 0, 0, initialVisited, path, 1.0);
+        progress = QueryProgress.start(ENGINE, path, pool, totalPaths::sum, null);
         pool.execute(rootTask);
-
-        // Show progress while computing
-        while (!rootTask.isDone()) {
-            showProgress();
-            try {
-                Thread.sleep(100);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                break;
-            }
+        try {
+            progress.await(rootTask);
+        } finally {
+            progress.close();
         }
 
         long endTime = System.currentTimeMillis();
@@ -354,10 +314,11 @@ public class WPathToEndCheck {
 
         // Show final results
         System.out.println("\n\nFinal Results:");
-        System.out.println("Total paths: " + totalPaths.get());
+        System.out.println("Total paths: " + totalPaths.sum());
         System.out.println("Time (ms): " + totalTime);
         System.out.printf("Average paths per second: %,.2f%n",
-                (totalPaths.get() * 1000.0) / totalTime);
+                (totalPaths.sum() * 1000.0) / totalTime);
+        System.out.println(totalPaths.breakdown());
 
         scanner.close();
     }
@@ -1,8 +1,10 @@
+import Final.EngineEvents;
+import Final.QueryProgress;
+import Final.StripedCounter;
+
 import java.util.Scanner;
 import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.RecursiveAction;
-import java.util.concurrent.atomic.AtomicLong;
-import java.util.concurrent.atomic.AtomicReference;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -11,12 +13,12 @@ public class nonearlyeliminate {
     private static final int GRID_SIZE = 8;
     private static final int TOTAL_MOVES = 63;
     private static final int PARALLEL_THRESHOLD = 10; // Depth at which to stop parallelizing
+    private static final String ENGINE = "nonearlyeliminate";
 
-    // Progress tracking variables
-    private static final AtomicLong totalPaths = new AtomicLong(0);
-    private static long lastUpdateTime = 0;
+    // Progress tracking variables, one padded stripe of the path count per common pool worker
+    private static final StripedCounter totalPaths = new StripedCounter(ForkJoinPool.commonPool());
     private static long startTime = 0;
-    private static final long UPDATE_INTERVAL = 1000; // Update progress every 1 second
+    private static QueryProgress progress = null;
 
     // Possible movement directions
     private static final int[] DX = {1, -1, 0, 0};  // Down, Up, Right, Left
@@ -29,30 +31,37 @@ public class nonearlyeliminate {
         private final int x, y, moveIndex;
         private final long visited;
         private final String path;
-        private final AtomicReference<List<Long>> pathsPerThread;
-        private final int threadId;
+        private double share;  // Part of the root's subtree this task covers, split evenly at every fork
+        private long nodes;  // Nodes searched by this task and its inline subtrees, without forked children
 
-        public PathExplorer(int x, int y, int moveIndex, long visited, String path,
-                            AtomicReference<List<Long>> pathsPerThread, int threadId) {
+        public PathExplorer(int x, int y, int moveIndex, long visited, String path, double share) {
             this.x = x;
             this.y = y;
             this.moveIndex = moveIndex;
             this.visited = visited;
             this.path = path;
-            this.pathsPerThread = pathsPerThread;
-            this.threadId = threadId;
+            this.share = share;
         }
 
         @Override
         protected void compute() {
+            EngineEvents.TaskExecuted event = EngineEvents.taskStarted();
+            boolean forked = explore();
+            EngineEvents.taskFinished(event, ENGINE, moveIndex, nodes);
+            if (!forked && progress != null) {
+                progress.subtreesDone(share);
+            }
+        }
+
+        // Searches this task's subtree, true if it was handed to forked children
+        private boolean explore() {
+            nodes++;
             // Base case: reached end of path
             if (moveIndex == TOTAL_MOVES) {
                 if (x == GRID_SIZE - 1 && y == 0) {
-                    totalPaths.incrementAndGet();
-                    List<Long> currentPaths = pathsPerThread.get();
-                    currentPaths.set(threadId, currentPaths.get(threadId) + 1);
+                    totalPaths.increment();
                 }
-                return;
+                return false;
             }
 
             char currentMove = path.charAt(moveIndex);
@@ -71,10 +80,10 @@ public class nonearlyeliminate {
                         if (moveIndex < PARALLEL_THRESHOLD) {
                             // Create new subtask for parallel processing
                             subtasks.add(new PathExplorer(newX, newY, moveIndex + 1,
-                                    visited | bitMask, path, pathsPerThread, threadId));
+                                    visited | bitMask, path, 0));
                         } else {
                             // Process sequentially beyond threshold
-                            explorePaths(newX, newY, moveIndex + 1, visited | bitMask, path);
+                            nodes += explorePaths(newX, newY, moveIndex + 1, visited | bitMask, path);
                         }
                     }
                 }
@@ -88,25 +97,20 @@ public class nonearlyeliminate {
                 long bitMask = 1L << pos;
 
                 if (isValid(newX, newY) && (visited & bitMask) == 0) {
-                    explorePaths(newX, newY, moveIndex + 1, visited | bitMask, path);
+                    nodes += explorePaths(newX, newY, moveIndex + 1, visited | bitMask, path);
                 }
             }
 
             // Invoke all subtasks in parallel
-            if (!subtasks.isEmpty()) {
-                invokeAll(subtasks);
+            if (subtasks.isEmpty()) {
+                return false;
             }
-        }
-    }
-
-    private static void showProgress() {
-        long currentTime = System.currentTimeMillis();
-        if (currentTime - lastUpdateTime >= UPDATE_INTERVAL) {
-            long elapsedSeconds = (currentTime - startTime) / 1000;
-            System.out.printf("\rPaths found: %,d, Time elapsed: %ds, Paths/second: %,d",
-                    totalPaths.get(), elapsedSeconds,
-                    elapsedSeconds > 0 ? totalPaths.get() / elapsedSeconds : 0);
-            lastUpdateTime = currentTime;
+            for (PathExplorer child : subtasks) {
+                child.share = share / subtasks.size();
+            }
+            EngineEvents.taskForked(ENGINE, moveIndex, subtasks.size());
+            invokeAll(subtasks);
+            return true;
         }
     }
 
@@ -124,15 +128,17 @@ public class nonearlyeliminate {
         }
     }
 
-    private static void explorePaths(int x, int y, int moveIndex, long visited, String path) {
+    // Searches a subtree on the calling thread, returns the nodes searched
+    private static long explorePaths(int x, int y, int moveIndex, long visited, String path) {
         if (moveIndex == TOTAL_MOVES) {
             if (x == GRID_SIZE - 1 && y == 0) {
-                totalPaths.incrementAndGet();
+                totalPaths.increment();
             }
-            return;
+            return 1;
         }
 
         char currentMove = path.charAt(moveIndex);
+        long nodes = 1;
 
         if (currentMove == '*') {
             for (int dir = 0; dir < 4; dir++) {
@@ -143,7 +149,7 @@ public class nonearlyeliminate {
                 long bitMask = 1L << pos;
 
                 if (isValid(newX, newY) && (visited & bitMask) == 0) {
-                    explorePaths(newX, newY, moveIndex + 1, visited | bitMask, path);
+                    nodes += explorePaths(newX, newY, moveIndex + 1, visited | bitMask, path);
                 }
             }
         } else {
@@ -155,9 +161,10 @@ public class nonearlyeliminate {
             long bitMask = 1L << pos;
 
             if (isValid(newX, newY) && (visited & bitMask) == 0) {
-                explorePaths(newX, newY, moveIndex + 1, visited | bitMask, path);
+                nodes += explorePaths(newX, newY, moveIndex + 1, visited | bitMask, path);
             }
         }
+        return nodes;
     }
 
     private static boolean isValidInput(String path) {
@@ -183,33 +190,21 @@ public class nonearlyeliminate {
         System.out.println("\nUsing " + processors + " processor cores");
         ForkJoinPool pool = ForkJoinPool.commonPool();
 
-        // Initialize thread-specific counters
-        List<Long> initialList = new ArrayList<>();
-        for (int i = 0; i < processors; i++) {
-            initialList.add(0L);
-        }
-        AtomicReference<List<Long>> pathsPerThread = new AtomicReference<>(initialList);
-
         // Start timing
+        totalPaths.reset();  // Repeated runs in one JVM start from zero
         startTime = System.currentTimeMillis();
-        lastUpdateTime = startTime;
 
         System.out.println("Starting parallel path exploration...\n");
 
-        // Start parallel processing
+        // Start parallel processing, progress is published by QueryProgress while this thread waits
         long initialVisited = 1L;
-        PathExplorer rootTask = new PathExplorer(0, 0, 0, initialVisited, path, pathsPerThread, 0);
+        PathExplorer rootTask = new PathExplorer(0, 0, 0, initialVisited, path, 1.0);
+        progress = QueryProgress.start(ENGINE, path, pool, totalPaths::sum, null);
         pool.execute(rootTask);
-
-        // Show progress while computing
-        while (!rootTask.isDone()) {
-            showProgress();
-            try {
-                Thread.sleep(100);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                break;
-            }
+        try {
+            progress.await(rootTask);
+        } finally {
+            progress.close();
         }
 
         long endTime = System.currentTimeMillis();
@@ -217,17 +212,13 @@ public class nonearlyeliminate {
 
         // Show final results
         System.out.println("\n\nFinal Results:");
-        System.out.println("Total paths: " + totalPaths.get());
+        System.out.println("Total paths: " + totalPaths.sum());
         System.out.println("Time (ms): " + totalTime);
         System.out.printf("Average paths per second: %,.2f%n",
-                (totalPaths.get() * 1000.0) / totalTime);
+                (totalPaths.sum() * 1000.0) / totalTime);
 
         // Show per-thread statistics
-        System.out.println("\nPaths found per thread:");
-        List<Long> finalPaths = pathsPerThread.get();
-        for (int i = 0; i < finalPaths.size(); i++) {
-            System.out.printf("Thread %d: %,d paths%n", i, finalPaths.get(i));
-        }
+        System.out.println(totalPaths.breakdown());
 
         scanner.close();
     }
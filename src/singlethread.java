@@ -1,3 +1,5 @@
+import Final.TreeSizeEstimator;
+
 import java.util.Scanner;
 
 public class singlethread {
@@ -30,7 +32,7 @@ public class singlethread {
     }
 
     /**
-     * Estimates the complexity of the search based on number of asterisks
+     * Estimates the complexity of the search by random probes of this engine's search tree
      */
     private static void showEstimatedComplexity(String path) {
         asteriskCount = (int) path.chars().filter(ch -> ch == '*').count();
@@ -38,8 +40,8 @@ public class singlethread {
         if (asteriskCount > 30) {
             System.out.println("Warning: High number of wildcards may result in long execution time");
         }
-        double estimatedPaths = Math.pow(4, asteriskCount);
-        System.out.printf("Estimated maximum paths to explore: %.2e%n", estimatedPaths);
+        TreeSizeEstimator.Estimate estimate = TreeSizeEstimator.estimate(path, TreeSizeEstimator.Engine.SINGLETHREAD);
+        System.out.printf("Estimated nodes to explore: %.2e (about %,d ms)%n", estimate.nodes(), estimate.millis(1));
     }
 
     private static boolean isValid(int x, int y) {
@@ -122,7 +124,8 @@ public class singlethread {
         System.out.println("\nAnalyzing path...");
         showEstimatedComplexity(path);
 
-        // Initialize timers
+        // Initialize timers, repeated runs in one JVM start from zero
+        totalPaths = 0;
         startTime = System.currentTimeMillis();
         lastUpdateTime = startTime;
 